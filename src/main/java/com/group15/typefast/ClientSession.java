@@ -0,0 +1,195 @@
+package com.group15.typefast;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ClientSession is the outbound side of one {@link ConnectionHandler}, which can outlive the transport it
+ * started on. Every frame for the client goes through it under one lock, so frames keep their order whatever
+ * thread sends them. Once the user logged in, the session is started with a token, and every frame sent from
+ * then on is numbered and kept in a bounded replay ring. If the transport drops, the session stays detached
+ * until a new transport resumes it with the token and the number of frames its client received; the frames
+ * the client missed are sent again, as long as they are still in the ring, and the new transport takes over.
+ */
+public class ClientSession {
+
+    static final int REPLAY_CAPACITY = 256; // Frames kept for a resume, a power of two
+    private static final int REPLAY_MASK = REPLAY_CAPACITY - 1;
+
+    static final int UNKNOWN = 0; // RESUMED status of an unknown or expired session
+    static final int RESUMED = 1; // RESUMED status of a session resumed without loss
+    static final int PARTIAL = 2; // RESUMED status of a session whose oldest missed frames were lost
+
+    private final ReentrantLock lock = new ReentrantLock(); // Orders the frames, never pins a virtual thread
+    private volatile Connection connection; // Current transport, null while detached
+    private String token; // Token issued at login, null before
+    private ByteBuffer[] replay; // Latest frames by number, allocated at login
+    private long sent; // Frames sent since the session started
+    private long detachedAt; // Time the transport was lost, from System.nanoTime
+    private boolean expired; // Set once the session can no longer be resumed
+
+    /**
+     * Creates the session of a new connection.
+     *
+     * @param connection the transport the connection was opened on
+     */
+    public ClientSession(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Sends a frame to the client, and keeps it for a resume once the session started. While detached the
+     * frame is only kept.
+     *
+     * @param frame the encoded frame, possibly shared with other connections, never modified
+     */
+    public void send(ByteBuffer frame) {
+        lock.lock();
+        try {
+            if (replay != null) {
+                replay[(int) (sent++ & REPLAY_MASK)] = frame;
+            }
+            write(connection, frame.duplicate());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts numbering and keeping the frames. The SESSION frame itself is neither numbered nor kept.
+     *
+     * @param token   the token the client resumes the session with
+     * @param session the encoded SESSION frame
+     */
+    public void start(String token, ByteBuffer session) {
+        lock.lock();
+        try {
+            this.token = token;
+            this.replay = new ByteBuffer[REPLAY_CAPACITY];
+            this.sent = 0;
+            write(connection, session);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the session to a new transport. The RESUMED response is sent first, then the frames the client
+     * missed that are still kept, and only then may other frames follow.
+     *
+     * @param next    the new transport
+     * @param request the RESUME request with the number of frames the client received
+     * @return the RESUMED status sent
+     */
+    public int resume(Connection next, Message request) {
+        Connection previous;
+        int status;
+        lock.lock();
+        try {
+            if (expired || replay == null) {
+                write(next, Protocol.encode(Message.resumed(UNKNOWN).replyTo(request)));
+                return UNKNOWN;
+            }
+            long received = Math.min(Math.max(0, request.getValue()), sent);
+            long first = Math.max(received, sent - REPLAY_CAPACITY);
+            status = first == received ? RESUMED : PARTIAL;
+            previous = connection;
+            connection = next;
+            write(next, Protocol.encode(Message.resumed(status).replyTo(request)));
+            for (long i = first; i < sent; i++) {
+                write(next, replay[(int) (i & REPLAY_MASK)].duplicate());
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (previous != null) {
+            previous.close(); // A half-open transport the client already gave up on
+        }
+        return status;
+    }
+
+    /**
+     * Detaches a transport that was closed, unless the session already moved to another one.
+     *
+     * @param closed the closed transport
+     * @return true if it was the current transport
+     */
+    public boolean detach(Connection closed) {
+        lock.lock();
+        try {
+            if (connection != closed) {
+                return false;
+            }
+            connection = null;
+            detachedAt = System.nanoTime();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends the session if it was detached for too long, after which it can no longer be resumed.
+     *
+     * @param now    the current time, from System.nanoTime
+     * @param window the time a detached session can be resumed, in nanoseconds
+     * @return true if the session just expired
+     */
+    public boolean expireIfIdle(long now, long window) {
+        lock.lock();
+        try {
+            if (expired || connection != null || now - detachedAt < window) {
+                return false;
+            }
+            expired = true;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends the session right away, such as when the client quits. The current transport is kept.
+     *
+     * @return true if the session was not ended yet
+     */
+    public boolean expire() {
+        lock.lock();
+        try {
+            boolean ended = expired;
+            expired = true;
+            return !ended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the current transport.
+     *
+     * @return the transport, or null while detached
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Writes a frame to a transport and closes the transport if it failed. Must be called with the lock held.
+     */
+    private void write(Connection target, ByteBuffer frame) {
+        if (target == null) {
+            return; // Detached, the frame waits in the ring
+        }
+        try {
+            target.writeFrame(frame);
+        } catch (IOException e) {
+            Log.debug("send_failed", "error", e.getMessage());
+            target.close(); // A broken transport cannot be used anymore
+        }
+    }
+}
@@ -12,20 +12,27 @@ import java.util.Scanner;
 
 public class ClientSocketTask implements Runnable {
 
+    private static final int LEADERBOARD_SIZE = 10; // Entries shown by the 'top' command
+    private static final int HISTORY_SIZE = 10; // Matches shown by the 'history' command
+    private static final int REGISTER_ID = 1; // Correlation ID of a pipelined registration
+    private static final int LOGIN_ID = 2; // Correlation ID of the login pipelined behind it
+
     // User-related fields
     private User user = new User(); // User object representing the current user
     private String request = null; // The request to be sent to the server
-    private String response = null; // The response received from the server
     private String answer = null; // The answer input by the user
+    private int watchedTeamID; // Team whose match the user asked to watch
     private Scanner scanner = new Scanner(System.in); // Scanner for reading user input
     private String ip = "localhost"; // Server IP address
     private int port = 8080; // Server port number
+    private String sessionToken; // Token to resume the session after a lost connection, null before login
+    private long received; // Frames received since the session started
+    private int round = -1; // Current round of the game, so late answers can be told apart
 
     // Socket and stream fields
     private Socket connection;
-    private ObjectOutputStream oos;
-    private BufferedReader br;
-    private BufferedWriter bw;
+    private DataOutputStream out;
+    private DataInputStream in;
 
     /**
      * Constructor to initialize the user object with default values.
@@ -46,9 +53,12 @@ public class ClientSocketTask implements Runnable {
         while (true) {
             try {
                 establishConnection(); // Establish the connection to the server
+                if (sessionToken != null) {
+                    resumeSession(); // Pick up where the lost connection left off
+                }
                 handleCommunication(); // Handle the communication with the server
                 break; // Break the loop if the connection and communication are successful
-            } catch (IOException | ClassNotFoundException e) {
+            } catch (IOException e) {
                 e.printStackTrace(); // Print the stack trace for the exception
                 closeConnection(); // Close the connection and resources
                 System.out.println("\033[0;33mReconnecting...\033[0m");
@@ -68,20 +78,43 @@ public class ClientSocketTask implements Runnable {
      */
     private void establishConnection() throws IOException {
         connection = new Socket(ip, port);
-        oos = new ObjectOutputStream(connection.getOutputStream());
-        bw = new BufferedWriter(new OutputStreamWriter(connection.getOutputStream()));
-        br = new BufferedReader(new InputStreamReader(connection.getInputStream()));
+        connection.setTcpNoDelay(true); // Requests leave as soon as they are written
+        out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+        in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
         System.out.println("\033[0;32mConnected to the server!\033[0m");
     }
 
+    /**
+     * Resumes the session of a lost connection. The server first sends the messages this client missed, which
+     * the current request then reads like any other. If the session expired, the user has to log in again.
+     *
+     * @throws IOException if an I/O error occurs when resuming
+     */
+    private void resumeSession() throws IOException {
+        FrameIO.writeMessage(out, Message.resume(sessionToken, (int) received));
+        Message response = FrameIO.readMessage(in); // Not counted, it belongs to no session
+        if (response == null) {
+            throw new EOFException("Server closed the connection");
+        }
+        if (response.getValue() == ClientSession.UNKNOWN) {
+            System.out.println("\033[0;31mYour session expired, please log in again.\033[0m");
+            sessionToken = null;
+            user.gameOver(); // The server took the user out of any game
+            user.setLoggedIn(false);
+        } else if (response.getValue() == ClientSession.PARTIAL) {
+            System.out.println("\033[0;33mSession resumed, some messages were lost.\033[0m");
+        } else {
+            System.out.println("\033[0;32mSession resumed.\033[0m");
+        }
+    }
+
     /**
      * Manages the communication between the client and the server.
      * It handles user inputs, sends requests, and processes server responses.
      *
      * @throws IOException if an I/O error occurs during communication
-     * @throws ClassNotFoundException if a class cannot be found during object deserialization
      */
-    private void handleCommunication() throws IOException, ClassNotFoundException {
+    private void handleCommunication() throws IOException {
         while (true) {
             handleUserInput(scanner); // Handle user input
 
@@ -93,12 +126,6 @@ public class ClientSocketTask implements Runnable {
             if (!user.inGame) sendRequest(); // Send the request if the user is not in a game
 
             handleServerResponse(); // Handle the server's response
-
-            try {
-                Thread.sleep(300); // Wait for 300 milliseconds between requests
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
         }
 
         System.out.println("\033[0;31mConnection will terminate\033[0m");
@@ -118,13 +145,13 @@ public class ClientSocketTask implements Runnable {
                                "The challenge continues with increasingly complex words, pushing your typing skills to the limit. " +
                                "Team coordination and quick reflexes are essential to succeed in TypeFast. " +
                                "Get ready to type fast and work together to achieve the highest score!!\033[0m\n");
-            System.out.print("\033[0;35mMake a choice: 1- Register 2- Login\nCHOOSE THEN PRESS ENTER: \033[0m");
+            System.out.print("\033[0;35mMake a choice: 1- Register and login 2- Login\nCHOOSE THEN PRESS ENTER: \033[0m");
 
             String choice;
             do {
                 choice = scanner.nextLine();
                 if (choice.equals("1")) {
-                    request = "register"; // Set request to "register" if the user chooses to register
+                    request = "register"; // Set request to "register" if the user chooses to register and log in
                 } else if (choice.equals("2")) {
                     request = "login"; // Set request to "login" if the user chooses to log in
                 } else if (choice.equals("q")) {
@@ -141,12 +168,22 @@ public class ClientSocketTask implements Runnable {
             scanner.nextLine(); // Consume the newline character
         } else if (!this.user.isTeamd()) {
             System.out.println("\033[0;34mHello " + this.user.getUsername() + " Score: " + this.user.getScore() + "\033[0m");
-            System.out.println("\033[0;34mType 'ready' to join a team or 'exit' to quit.\033[0m");
+            System.out.println("\033[0;34mType 'ready' to join a team, 'watch' to watch a match, 'top' to see the leaderboard, 'history' to see your last matches or 'exit' to quit.\033[0m");
             String choice = scanner.next().toLowerCase();
 
             if (choice.equals("ready")) {
                 System.out.println("\n\033[0;32mTeam making ... Please be patient\033[0m");
                 request = "make a team"; // Set request to "make a team" if the user chooses to join a team
+            } else if (choice.equals("watch")) {
+                System.out.print("\033[0;33mEnter the team ID: \033[0m");
+                if (scanner.hasNextInt()) {
+                    watchedTeamID = scanner.nextInt();
+                    request = "watch"; // Set request to "watch" if the user chooses to watch a match
+                }
+            } else if (choice.equals("top")) {
+                request = "leaderboard"; // Set request to "leaderboard" if the user chooses to see the leaderboard
+            } else if (choice.equals("history")) {
+                request = "history"; // Set request to "history" if the user chooses to see their matches
             } else if (choice.equals("exit")) {
                 request = "q"; // Set request to "q" if the user chooses to exit
             }
@@ -169,15 +206,40 @@ public class ClientSocketTask implements Runnable {
     }
 
     /**
-     * Sends the current user object and request string to the server using the ObjectOutputStream.
+     * Sends the message matching the current request to the server.
      *
      * @throws IOException if an I/O error occurs when sending the request
      */
     private void sendRequest() throws IOException {
+        Message message;
+        switch (request) {
+            case "register":
+                sendRegistration();
+                return;
+            case "login":
+                message = Message.login(user.getUsername(), user.getPassword());
+                break;
+            case "make a team":
+                message = Message.makeTeam();
+                break;
+            case "start a game":
+                message = Message.startGame();
+                break;
+            case "watch":
+                message = Message.watch(watchedTeamID);
+                break;
+            case "leaderboard":
+                message = Message.leaderboard(LEADERBOARD_SIZE);
+                break;
+            case "history":
+                message = Message.history(HISTORY_SIZE);
+                break;
+            default:
+                message = Message.quit();
+                break;
+        }
         try {
-            oos.writeObject(this.user); // Send the user object to the server
-            oos.writeObject(request); // Send the request string to the server
-            oos.flush();
+            FrameIO.writeMessage(out, message); // Send the request to the server
             System.out.println("\033[0;32mSent request: " + request + "\033[0m");
         } catch (SocketException e) {
             System.out.println("\033[0;31mConnection lost while sending request.\033[0m");
@@ -185,25 +247,94 @@ public class ClientSocketTask implements Runnable {
         }
     }
 
+    /**
+     * Sends the registration and the login together, without waiting for the registration to be answered.
+     * The responses carry the correlation IDs of their requests, since the server may answer the login
+     * before the registration is durable.
+     *
+     * @throws IOException if an I/O error occurs when sending the requests
+     */
+    private void sendRegistration() throws IOException {
+        try {
+            FrameIO.writeMessages(out, Message.register(user.getUsername(), user.getPassword()).withCorrelation(REGISTER_ID),
+                    Message.login(user.getUsername(), user.getPassword()).withCorrelation(LOGIN_ID));
+            System.out.println("\033[0;32mSent request: register and login\033[0m");
+        } catch (SocketException e) {
+            System.out.println("\033[0;31mConnection lost while sending request.\033[0m");
+            throw e;
+        }
+    }
+
+    /**
+     * Sends the typed answer to the server. Typing 'q' switches the user to spectating instead.
+     *
+     * @throws IOException if an I/O error occurs when sending the answer
+     */
+    private void sendAnswer() throws IOException {
+        if (answer.equalsIgnoreCase("q")) {
+            FrameIO.writeMessage(out, Message.spectate()); // Ask the server to switch to spectating
+        } else {
+            FrameIO.writeMessage(out, Message.answer(round, answer)); // Dropped if the round is over
+        }
+    }
+
+    /**
+     * Reads the next message from the server. The session token sent after login is kept aside, and the
+     * messages that follow it are counted, so a resumed session knows which ones the client missed. The
+     * words are counted too, so answers can carry their round.
+     *
+     * @return the message, or null if the server closed the connection
+     * @throws IOException if an I/O error occurs when receiving the message
+     */
+    private Message readMessage() throws IOException {
+        while (true) {
+            Message message = FrameIO.readMessage(in);
+            if (message != null && message.getType() == MessageType.SESSION) {
+                sessionToken = message.getText(); // Numbering starts after the token
+                received = 0;
+                continue;
+            }
+            if (message != null && sessionToken != null) {
+                received++;
+            }
+            if (message != null && message.getType() == MessageType.GAME_STARTED) {
+                round = -1;
+            } else if (message != null && message.getType() == MessageType.NEW_WORD) {
+                round++;
+            }
+            return message;
+        }
+    }
+
     /**
      * Reads and processes the server's responses based on the current request.
      *
      * @throws IOException if an I/O error occurs when receiving the response
-     * @throws ClassNotFoundException if a class cannot be found during object deserialization
      */
-    private void handleServerResponse() throws IOException, ClassNotFoundException {
+    private void handleServerResponse() throws IOException {
         try {
             if (request.equals("register")) {
-                response = br.readLine(); // Read the server's response for registration
-                if (response != null) {
-                    System.out.println(response); // Print the response
-                    System.out.println("\n");
+                for (int responses = 0; responses < 2; responses++) {
+                    Message response = readMessage(); // Read the responses to the registration and the login, in any order
+                    if (response == null) {
+                        break;
+                    }
+                    if (response.getCorrelation() == REGISTER_ID) {
+                        if (response.isSuccess()) {
+                            System.out.println(user.getUsername() + " is Registered Successfully"); // Print the response
+                        } else {
+                            System.out.println("\033[0;31mRegistration failed, the username is already taken\033[0m");
+                        }
+                    } else if (response.getCorrelation() == LOGIN_ID && response.isSuccess()) {
+                        System.out.println("\033[0;32mlogged in successfully!\033[0m");
+                        user.setLoggedIn(true); // Update the user's login status
+                    }
                 }
+                System.out.println("\n");
             } else if (request.equals("login")) {
-                String line = br.readLine(); // Read the server's response for login
-                if (line != null) {
-                    boolean verified = Boolean.parseBoolean(line); // Parse the response to a boolean
-                    if (verified) {
+                Message response = readMessage(); // Read the server's response for login
+                if (response != null) {
+                    if (response.isSuccess()) {
                         System.out.println("\033[0;32mlogged in successfully!\033[0m");
                         System.out.println("\n");
                         user.setLoggedIn(true); // Update the user's login status
@@ -217,23 +348,16 @@ public class ClientSocketTask implements Runnable {
                 System.out.println("\n");
 
                 while (true) {
-                    String serverMessage = br.readLine(); // Read the server's response for team formation
+                    Message serverMessage = readMessage(); // Read the server's response for team formation
                     if (serverMessage == null) {
                         System.out.println("\033[0;31mServer closed connection unexpectedly.\033[0m");
                         System.out.println("\n");
                         break;
-                    } else if (serverMessage.equals("Waiting for team members...")) {
-                        System.out.println(serverMessage); // Print the waiting message
+                    } else if (serverMessage.getType() == MessageType.TEAM_WAITING) {
+                        System.out.println("Waiting for team members..."); // Print the waiting message
                         System.out.println("\n");
-
-                        try {
-                            Thread.sleep(1000); // Wait for 1 second before checking again
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt(); // Restore the interrupted status
-                            throw new IOException("Thread was interrupted", e);
-                        }
-                    } else {
-                        int teamID = Integer.parseInt(serverMessage); // Parse the team ID
+                    } else if (serverMessage.getType() == MessageType.TEAM_FORMED) {
+                        int teamID = serverMessage.getValue(); // Read the team ID
                         user.setTeamID(teamID); // Set the user's team ID
                         System.out.println("\033[0;32mYou are now in team '" + teamID + "'\033[0m");
                         System.out.println("\n");
@@ -242,31 +366,27 @@ public class ClientSocketTask implements Runnable {
                     }
                 }
             } else if (request.equals("start a game")) {
-                String serverMessage = br.readLine(); // Read the server's response for starting the game
-                if (serverMessage != null) {
-                    System.out.println(serverMessage); // Print the response
+                Message serverMessage = readMessage(); // Read the server's response for starting the game
+                if (serverMessage != null && serverMessage.getType() == MessageType.SPECTATING) {
+                    System.out.println("\033[0;33mYou took too long to get ready, the game goes on without you.\033[0m");
+                    user.setSpectator(true); // Follow the game of the team as a spectator
+                    handleGameSession();
+                } else if (serverMessage != null && serverMessage.getType() == MessageType.READY_WAITING) {
+                    System.out.println("Waiting for all team members to be ready...");
                     System.out.println("\n");
 
-                    serverMessage = br.readLine();
-                    if (serverMessage != null && serverMessage.startsWith("Game started")) {
+                    serverMessage = readMessage();
+                    if (serverMessage != null && serverMessage.getType() == MessageType.GAME_STARTED) {
                         countDown(); // Start the countdown before the game
-                        System.out.println(serverMessage);
+                        System.out.println("Game started for team " + serverMessage.getValue());
                         System.out.println("\n");
-                        serverMessage = br.readLine();
-                        System.out.println(serverMessage);
+                        printNewWord(readMessage());
                         System.out.println("\n");
                         System.out.print("\033[0;33m(Q/q to spectate) Your answer: \033[0m");
                         System.out.println("\n");
 
                         answer = scanner.nextLine(); // Read the user's answer
-
-                        oos.writeObject(answer); // Send the answer to the server
-                        oos.flush();
-                        try {
-                            Thread.sleep(300); // Wait for 300 milliseconds before continuing
-                        } catch (InterruptedException e) {
-                            e.printStackTrace();
-                        }
+                        sendAnswer(); // Send the answer to the server
 
                         handleGameSession(); // Handle the game session
                     }
@@ -275,37 +395,32 @@ public class ClientSocketTask implements Runnable {
                 handleGameSession(); // Handle the game session
             } else if (request.equals("next round")) {
                 this.user.resetTrials(); // Reset the user's trials
-                String serverMessage = br.readLine(); // Read the server's response for the next round
-                System.out.println(serverMessage);
-                System.out.println("\n");
+                Message serverMessage = readMessage(); // Read the server's response for the next round
 
-                if (serverMessage.startsWith("Congratulations")) {
+                if (serverMessage == null || serverMessage.getType() == MessageType.GAME_OVER) {
+                    printGameOver(serverMessage);
                     this.user.gameOver();
                     return;
                 }
+                printNewWord(serverMessage);
+                System.out.println("\n");
                 System.out.print("\033[0;33m(Q/q to spectate) Your answer: \033[0m");
                 answer = scanner.nextLine(); // Read the user's answer
-                oos.writeObject(answer); // Send the answer to the server
-                oos.flush();
-                try {
-                    Thread.sleep(300); // Wait for 300 milliseconds before continuing
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+                sendAnswer(); // Send the answer to the server
                 handleGameSession(); // Handle the game session
             } else if (request.equals("wrong answer")) {
                 System.out.print("\033[0;33m(Q/q to spectate) Your answer: \033[0m");
                 answer = scanner.nextLine(); // Read the user's answer
-                oos.writeObject(answer); // Send the answer to the server
-                oos.flush();
+                sendAnswer(); // Send the answer to the server
                 handleGameSession(); // Handle the game session
-                try {
-                    Thread.sleep(300); // Wait for 300 milliseconds before continuing
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
             } else if (request.equals("spectate")) {
                 handleGameSession(); // Handle the game session
+            } else if (request.equals("watch")) {
+                handleWatch(); // Follow the match of another team
+            } else if (request.equals("leaderboard")) {
+                handleLeaderboard(); // Print the best players
+            } else if (request.equals("history")) {
+                handleHistory(); // Print the last matches
             }
         } catch (SocketException e) {
             System.out.println("\033[0;31mConnection lost while receiving response.\033[0m");
@@ -317,60 +432,177 @@ public class ClientSocketTask implements Runnable {
      * Manages the game session, processing game-related messages from the server and updating the user's state accordingly.
      *
      * @throws IOException if an I/O error occurs during communication
-     * @throws ClassNotFoundException if a class cannot be found during object deserialization
      */
-    private void handleGameSession() throws IOException, ClassNotFoundException {
+    private void handleGameSession() throws IOException {
         this.user.setInGame(true); // Set the user's in-game status to true
         while (this.user.inGame() && !this.user.isSpectator()) {
-            String serverMessage = br.readLine(); // Read the server's game message
-            if (serverMessage != null) {
-                if (serverMessage.startsWith("You are")) {
-                    System.out.println(serverMessage); // Print the spectator message
-                    user.setSpectator(true); // Set the user's spectator status to true
-                    request = "spectate"; // Set the request to spectate
-                    break;
-                } else if (serverMessage.startsWith("Correct")) {
-                    System.out.println(serverMessage + "    Trials = " + this.user.getCurrentTrials()); // Print the correct answer message and trials
-                    serverMessage = br.readLine();
-                    if (serverMessage != null && serverMessage.contains("All")) {
-                        System.out.println(serverMessage); // Print the next round message
-                        request = "next round"; // Set the request to next round
-                        break;
-                    }
-                } else {
-                    request = "wrong answer"; // Set the request to wrong answer
-                    System.out.println(serverMessage); // Print the wrong answer message
-                    this.user.setCurrentTrials(this.user.getCurrentTrials() + 1); // Increment the user's trials
+            Message serverMessage = readMessage(); // Read the server's game message
+            if (serverMessage == null) {
+                throw new EOFException("Server closed the connection");
+            }
+            if (serverMessage.getType() == MessageType.SPECTATING) {
+                System.out.println("You are now spectating."); // Print the spectator message
+                user.setSpectator(true); // Set the user's spectator status to true
+                request = "spectate"; // Set the request to spectate
+                break;
+            } else if (serverMessage.getType() == MessageType.TIME_UP) {
+                System.out.println("\033[0;31mTime's up! The team moves on without your word.\033[0m");
+                do {
+                    serverMessage = readMessage(); // Skip to the end of the round
+                } while (serverMessage != null && serverMessage.getType() != MessageType.ROUND_COMPLETE);
+                request = "next round"; // Set the request to next round
+                break;
+            } else if (serverMessage.getType() == MessageType.CORRECT) {
+                System.out.println("Correct! Time: " + serverMessage.getValue() + "ms" + "    Trials = " + this.user.getCurrentTrials()); // Print the correct answer message and trials
+                serverMessage = readMessage();
+                if (serverMessage != null && serverMessage.getType() == MessageType.ROUND_COMPLETE) {
+                    System.out.println("All your team answered! You got 1 point"); // Print the next round message
+                    request = "next round"; // Set the request to next round
                     break;
                 }
+            } else if (serverMessage.getType() == MessageType.INCORRECT) {
+                request = "wrong answer"; // Set the request to wrong answer
+                System.out.println("Incorrect. Try again."); // Print the wrong answer message
+                this.user.setCurrentTrials(this.user.getCurrentTrials() + 1); // Increment the user's trials
+                break;
             }
         }
         while (this.user.isSpectator()) {
-            String serverMessage = br.readLine(); // Read the server's spectator message
-            if (serverMessage != null) {
-                System.out.println(serverMessage); // Print the spectator message
-                if (serverMessage.contains("All")) {
-                    serverMessage = br.readLine(); // Read the next message
-                }
-                if (serverMessage.contains("New word")) {
-                    System.out.println(serverMessage); // Print the new word message
-                }
-                if (serverMessage.contains("Game Over")) {
-                    System.out.println("Congratulations... Your team have finished the game with score of 10 Points!\n ");
-                    user.gameOver(); // End the user's game session
+            Message serverMessage = readMessage(); // Read the server's spectator message
+            if (serverMessage == null) {
+                throw new EOFException("Server closed the connection");
+            }
+            if (serverMessage.getType() == MessageType.ROUND_COMPLETE) {
+                System.out.println("All your team answered! You got 1 point");
+            } else if (serverMessage.getType() == MessageType.NEW_WORD) {
+                printNewWord(serverMessage); // Print the new word message
+            } else if (serverMessage.getType() == MessageType.GAME_OVER) {
+                printGameOver(serverMessage);
+                user.gameOver(); // End the user's game session
+            }
+        }
+    }
+
+    /**
+     * Prints the events of a watched match until it is over.
+     *
+     * @throws IOException if an I/O error occurs when receiving the events
+     */
+    private void handleWatch() throws IOException {
+        Message serverMessage = readMessage();
+        if (serverMessage == null || !serverMessage.isSuccess()) {
+            System.out.println("\033[0;31mTeam " + watchedTeamID + " is not playing right now.\033[0m\n");
+            return;
+        }
+        System.out.println("\033[0;32mWatching team " + watchedTeamID + "\033[0m\n");
+        while (true) {
+            serverMessage = readMessage(); // Read the next event of the match
+            if (serverMessage == null) {
+                throw new EOFException("Server closed the connection");
+            }
+            switch (serverMessage.getType()) {
+                case GAME_STARTED:
+                    System.out.println("Game started for team " + serverMessage.getValue());
+                    break;
+                case NEW_WORD:
+                    System.out.println("Words completed: " + serverMessage.getValue() + " New word: " + serverMessage.getText());
+                    break;
+                case PLAYER_ANSWERED:
+                    System.out.println(serverMessage.getText() + " answered in " + serverMessage.getValue() + "ms");
+                    break;
+                case ROUND_COMPLETE:
+                    System.out.println("The whole team answered!");
+                    break;
+                case GAME_OVER:
+                    System.out.println("Team " + watchedTeamID + " finished with " + serverMessage.getValue() +
+                                       " words completed. Time =" + serverMessage.getTime() / 1000 + "seconds\n");
+                    return;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Prints the leaderboard entries followed by the rank of the user.
+     *
+     * @throws IOException if an I/O error occurs when receiving the entries
+     */
+    private void handleLeaderboard() throws IOException {
+        System.out.println("\033[0;32mLeaderboard\033[0m");
+        int position = 0;
+        while (true) {
+            Message serverMessage = readMessage(); // Read the next entry
+            if (serverMessage == null) {
+                throw new EOFException("Server closed the connection");
+            }
+            if (serverMessage.getType() == MessageType.LEADER) {
+                position++;
+                System.out.println(position + ". " + serverMessage.getText() + "  " + serverMessage.getValue() +
+                                   " words in " + serverMessage.getTime() / 1000.0 + "s");
+            } else if (serverMessage.getType() == MessageType.RANK) {
+                if (serverMessage.getValue() == 0) {
+                    System.out.println("Finish a game to get ranked.\n");
+                } else {
+                    System.out.println("Your rank: " + serverMessage.getValue() + " of " + serverMessage.getTime() + "\n");
                 }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Prints the last matches of the user followed by the number of matches played.
+     *
+     * @throws IOException if an I/O error occurs when receiving the matches
+     */
+    private void handleHistory() throws IOException {
+        System.out.println("\033[0;32mYour last matches\033[0m");
+        while (true) {
+            Message serverMessage = readMessage(); // Read the next match
+            if (serverMessage == null) {
+                throw new EOFException("Server closed the connection");
+            }
+            if (serverMessage.getType() == MessageType.MATCH) {
+                System.out.println(serverMessage.getValue() + " words in " + serverMessage.getTime() / 1000.0 +
+                                   "s with " + serverMessage.getText());
+            } else if (serverMessage.getType() == MessageType.MATCHES) {
+                System.out.println("Matches played: " + serverMessage.getValue() + "\n");
+                return;
             }
         }
     }
 
+    /**
+     * Prints the word of a new round together with the team score.
+     *
+     * @param message the NEW_WORD message
+     */
+    private void printNewWord(Message message) {
+        if (message != null && message.getType() == MessageType.NEW_WORD) {
+            System.out.println("Your Team Score: " + message.getValue() + " points!" + " New word: " + message.getText());
+        }
+    }
+
+    /**
+     * Prints the final score and time of the team.
+     *
+     * @param message the GAME_OVER message
+     */
+    private void printGameOver(Message message) {
+        if (message != null) {
+            System.out.println("Congratulations... Your team have finished the game with score of " + message.getValue() +
+                               " Points! Time =" + message.getTime() / 1000 + "seconds");
+        }
+    }
+
     /**
      * Closes all open streams and the socket connection.
      */
     private void closeConnection() {
         try {
-            if (oos != null) oos.close(); // Close the ObjectOutputStream
-            if (bw != null) bw.close(); // Close the BufferedWriter
-            if (br != null) br.close(); // Close the BufferedReader
+            if (out != null) out.close(); // Close the DataOutputStream
+            if (in != null) in.close(); // Close the DataInputStream
             if (connection != null) connection.close(); // Close the socket connection
         } catch (IOException e) {
             e.printStackTrace();
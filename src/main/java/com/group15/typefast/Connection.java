@@ -0,0 +1,44 @@
+package com.group15.typefast;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Connection is the transport a {@link ConnectionHandler} sends its responses through.
+ * Writes may come from any thread, because team events are delivered to every member of the team, so they
+ * must never block: transports queue the frames and write them on a thread of their own.
+ */
+public interface Connection {
+
+    /**
+     * Sends one response message to the client.
+     *
+     * @param message the response message
+     * @throws IOException if the message could not be written
+     */
+    void write(Message message) throws IOException;
+
+    /**
+     * Sends one already encoded frame to the client. The frame may be shared with other connections,
+     * so it must only be read through the given buffer and never modified.
+     *
+     * @param frame the encoded frame, from its length prefix up to the buffer's limit
+     * @throws IOException if the frame could not be written
+     */
+    void writeFrame(ByteBuffer frame) throws IOException;
+
+    /**
+     * Returns whether the client is so far behind reading its responses that optional messages, such as
+     * the events of a watched match, should be skipped. Transports that never queue never are.
+     *
+     * @return true if optional messages should not be queued
+     */
+    default boolean isBacklogged() {
+        return false;
+    }
+
+    /**
+     * Closes the underlying socket.
+     */
+    void close();
+}
@@ -0,0 +1,484 @@
+package com.group15.typefast;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConnectionHandler is the per-connection state machine of the TypeFast server. It handles the messages
+ * decoded by a transport and moves the user through registration, login, team formation, and game
+ * sessions. It never blocks: game events are handed to the team's {@link GameSession}, which pushes its
+ * responses back through {@link #deliver}, so the same handler can be driven by a blocking socket thread
+ * or by an NIO event loop. A logged in user that is not playing can also watch the match of another team.
+ * Responses go through the handler's {@link ClientSession}, so after login a client that lost its connection
+ * can resume on a new one, with the responses it missed, before the {@link SessionTable} expires the session.
+ * A connection that sends no request for the idle timeout is closed, unless it is in a match or watching one,
+ * where only the server speaks; this also frees the thread a half-open socket holds in the blocking modes.
+ * Passwords are hashed and checked on the password executor of the {@link ServerContext}, never on the transport's
+ * thread; requests pipelined behind a REGISTER or LOGIN wait for its password check, so they are still handled
+ * in order.
+ */
+public class ConnectionHandler implements MatchStream.Watcher {
+
+    private static final int MAX_LEADERS = 100; // Most leaderboard entries sent for one request
+    private static final int MAX_MATCHES = 100; // Most past matches sent for one request
+    private static final CompletableFuture<Boolean> OPEN = CompletableFuture.completedFuture(true); // Request handled, connection stays open
+    private static final CompletableFuture<Boolean> CLOSE = CompletableFuture.completedFuture(false); // Request handled, connection closes
+
+    private final Connection connection; // Transport this handler was created for
+    private final ClientSession session; // Outbound frames of the client, across resumed transports
+    private final ServerContext context; // Server-wide services
+    private final UserRegistry users; // Registered users
+    private volatile ConnectionState state = ConnectionState.REGISTERED; // Current state of the connection
+    private User user; // The user bound to this connection after login
+    private volatile MatchStream.Subscription watching; // Match followed while in the WATCHING state
+    private volatile ConnectionHandler resumed; // Handler whose session this connection resumed, null if none
+    private volatile long lastRequestNanos = System.nanoTime(); // Time the last request arrived on this connection
+    private volatile boolean closed; // Set once the transport is closed
+    private volatile CompletableFuture<Boolean> pending = OPEN; // Last request handled, done unless a password check is running
+
+    /**
+     * Constructor to initialize the handler with its transport and the server-wide services.
+     *
+     * @param connection the transport used to send responses
+     * @param context    the server-wide services
+     */
+    public ConnectionHandler(Connection connection, ServerContext context) {
+        this.connection = connection;
+        this.session = new ClientSession(connection);
+        this.context = context;
+        this.users = context.getUsers();
+        long idleTimeout = context.getConfig().getIdleTimeoutMillis();
+        if (idleTimeout > 0) {
+            context.getTimer().schedule(this::checkIdle, idleTimeout, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Handles one message received from the client according to the current state of the connection.
+     *
+     * @param message the decoded request
+     * @return false if the client asked to close the connection, true otherwise
+     */
+    public boolean onMessage(Message message) {
+        lastRequestNanos = System.nanoTime();
+        if (resumed != null) {
+            return resumed.onMessage(message); // This connection took over another session
+        }
+        CompletableFuture<Boolean> previous = pending;
+        if (previous.isDone()) {
+            CompletableFuture<Boolean> handled = handle(message);
+            pending = handled;
+            return handled.getNow(true); // Only QUIT completes with false, and right away
+        }
+        pending = previous.thenCompose(open -> open ? handle(message) : CLOSE) // Waits for the password check
+                .exceptionally(e -> {
+                    Log.error("request_failed", e, "type", message.getType());
+                    return false;
+                })
+                .thenApply(open -> {
+                    if (!open) {
+                        connection.close(); // The client asked to quit, or its request failed
+                    }
+                    return open;
+                });
+        return true;
+    }
+
+    /**
+     * Handles one request according to the current state of the connection.
+     *
+     * @param message the decoded request
+     * @return a future completed with false if the client asked to close the connection, with true once the
+     *         requests after this one can be handled
+     */
+    private CompletableFuture<Boolean> handle(Message message) {
+        if (Log.isDebugEnabled()) {
+            Log.debug("request", "type", message.getType(), "user", user == null ? null : user.getUsername());
+        }
+
+        switch (message.getType()) {
+            case REGISTER:
+                User newUser = new User(message.getText(), message.getSecret());
+                CompletableFuture<CompletableFuture<Boolean>> added = CompletableFuture.supplyAsync(
+                        () -> users.register(newUser), context.getPasswords()); // Handle user registration
+                added.thenCompose(durable -> durable)
+                        .whenComplete((registered, e) -> send(Message.registered(registered != null && registered).replyTo(message))); // Answer once the account is durable
+                return added.handle((durable, e) -> true); // Later requests only wait for the account to exist
+
+            case LOGIN:
+                long loginStart = System.nanoTime();
+                return CompletableFuture.supplyAsync(() -> users.login(message.getText(), message.getSecret()),
+                        context.getPasswords()) // Handle user login
+                        .handle((registeredUser, e) -> {
+                            context.getMetrics().loggedIn(System.nanoTime() - loginStart);
+                            onLogin(message, registeredUser);
+                            return true;
+                        });
+
+            case RESUME:
+                if (user == null) {
+                    resume(message); // Handle a client reconnecting to its session
+                }
+                break;
+
+            case MAKE_TEAM:
+                if (state == ConnectionState.LOGGED_IN && !user.isTeamd() && user.getTeam() == null) {
+                    send(Message.teamWaiting().replyTo(message)); // Inform the user to wait for team members
+                    context.getMatchmaker().join(user); // Handle team formation
+                }
+                break;
+
+            case START_GAME:
+                if (state == ConnectionState.TEAMED) {
+                    user.getTeam().getSession().ready(user); // Handle game start
+                }
+                break;
+
+            case ANSWER:
+                if (state == ConnectionState.IN_GAME) {
+                    user.getTeam().getSession().answer(user, message, System.nanoTime()); // Handle answer submission
+                }
+                break;
+
+            case SPECTATE:
+                if (state == ConnectionState.IN_GAME) {
+                    user.getTeam().getSession().spectate(user); // Handle a player leaving the active play
+                }
+                break;
+
+            case WATCH:
+                if (state == ConnectionState.LOGGED_IN && !user.isTeamd()) {
+                    watch(message); // Handle a user watching another team
+                }
+                break;
+
+            case UNWATCH:
+                MatchStream.Subscription subscription = watching;
+                if (state == ConnectionState.WATCHING && subscription != null) {
+                    subscription.cancel();
+                    watching = null;
+                    state = ConnectionState.LOGGED_IN;
+                    send(Message.watching(false).replyTo(message)); // Confirm that no more events follow
+                }
+                break;
+
+            case LEADERBOARD:
+                if (user != null) {
+                    sendLeaderboard(message); // Handle a leaderboard request
+                }
+                break;
+
+            case HISTORY:
+                if (user != null) {
+                    sendHistory(message); // Handle a match history request
+                }
+                break;
+
+            case QUIT:
+                if (user != null && session.expire()) {
+                    context.getSessions().remove(session.getToken(), this);
+                    onExpired(); // A client that quits does not come back
+                }
+                return CLOSE; // Handle client disconnect
+
+            default:
+                // Handle unknown requests
+                break;
+        }
+        return OPEN;
+    }
+
+    /**
+     * Answers a LOGIN request once the password was checked and binds the session to the user. Runs on the
+     * password executor.
+     *
+     * @param request        the LOGIN request
+     * @param registeredUser the user, or null if the credentials are invalid
+     */
+    private void onLogin(Message request, User registeredUser) {
+        send(Message.loginResult(registeredUser != null).replyTo(request)); // Send verification result to client
+        if (registeredUser == null || closed) {
+            return; // A closed connection can never be resumed, so it gets no session
+        }
+        user = registeredUser; // Bind the session to the registered user
+        ConnectionHandler previous = user.getHandler();
+        if (previous != null && previous != this) {
+            context.getSessions().remove(previous.session.getToken(), previous); // The new login takes over
+        }
+        if (session.getToken() == null) {
+            String token = context.getSessions().open(this);
+            session.start(token, Protocol.encode(Message.session(token).replyTo(request)));
+        }
+        user.setHandler(this);
+        state = ConnectionState.LOGGED_IN;
+    }
+
+    /**
+     * Detaches the session from the transport once it is closed. A resumable session keeps what it holds on
+     * the server until it is resumed or expires; any other releases it right away.
+     */
+    void onClosed() {
+        closed = true;
+        ConnectionHandler owner = resumed != null ? resumed : this;
+        if (!owner.session.detach(connection)) {
+            return; // The session already moved to another transport
+        }
+        if (context.getSessions().get(owner.session.getToken()) == owner) {
+            context.getSessions().detached(owner); // Starts the resume window
+        } else {
+            owner.stopWatching(); // Nobody can resume this session
+        }
+    }
+
+    /**
+     * Closes the connection if the client sent no request for the idle timeout, or checks again once the
+     * timeout could be reached. Runs on the timer thread.
+     */
+    private void checkIdle() {
+        if (closed) {
+            return;
+        }
+        long timeout = TimeUnit.MILLISECONDS.toNanos(context.getConfig().getIdleTimeoutMillis());
+        ConnectionHandler owner = resumed != null ? resumed : this;
+        ConnectionState current = owner.state;
+        long idle = System.nanoTime() - lastRequestNanos;
+        if (current == ConnectionState.IN_GAME || current == ConnectionState.SPECTATING || current == ConnectionState.WATCHING) {
+            idle = 0; // The client waits for the server, the match deadlines take care of it
+        }
+        if (idle < timeout) {
+            context.getTimer().schedule(this::checkIdle, timeout - idle, TimeUnit.NANOSECONDS);
+            return;
+        }
+        context.getMetrics().idleClosed();
+        Log.info("idle_closed", "user", owner.user == null ? null : owner.user.getUsername(), "state", current,
+                "idle_ms", TimeUnit.NANOSECONDS.toMillis(idle));
+        connection.close();
+    }
+
+    /**
+     * Releases what the session holds on the server once it can no longer be resumed: the watched match,
+     * the place in the lobby, or the place in the team, which the player leaves for good.
+     */
+    void onExpired() {
+        stopWatching();
+        User expiredUser = user;
+        if (expiredUser == null || expiredUser.getHandler() != this) {
+            return; // The user logged in again on another connection
+        }
+        Team team = expiredUser.getTeam();
+        if (team != null && team.getSession() != null) {
+            team.getSession().leave(expiredUser); // The teammates play on without the player
+        } else {
+            context.getMatchmaker().leave(expiredUser);
+        }
+        Log.debug("session_expired", "user", expiredUser.getUsername(), "state", state);
+    }
+
+    /**
+     * Moves the session of a lost connection to this one. Once resumed, the requests of this connection are
+     * handled by the resumed handler, and this handler only forwards them.
+     *
+     * @param request the RESUME request with the token and the number of frames the client received
+     */
+    private void resume(Message request) {
+        ConnectionHandler owner = context.getSessions().get(request.getText());
+        if (owner == null || owner == this) {
+            send(Message.resumed(ClientSession.UNKNOWN).replyTo(request)); // Unknown or expired token
+            return;
+        }
+        int status = owner.session.resume(connection, request);
+        if (status != ClientSession.UNKNOWN) {
+            resumed = owner;
+            context.getMetrics().sessionResumed();
+            Log.debug("session_resumed", "user", owner.user.getUsername(), "received", request.getValue(),
+                    "complete", status == ClientSession.RESUMED);
+        }
+    }
+
+    private void stopWatching() {
+        MatchStream.Subscription subscription = watching;
+        if (subscription != null) {
+            subscription.cancel(); // Stop sending the watched match
+            watching = null;
+            state = ConnectionState.LOGGED_IN;
+        }
+    }
+
+    ClientSession getSession() {
+        return session;
+    }
+
+    /**
+     * Subscribes this connection to the stream of a match in progress.
+     *
+     * @param request the WATCH request with the team playing the match
+     */
+    private void watch(Message request) {
+        MatchStream stream = context.getScheduler().getStream(request.getValue());
+        if (stream == null) {
+            send(Message.watching(false).replyTo(request)); // No such match in progress
+            return;
+        }
+        state = ConnectionState.WATCHING; // Set before the first event can arrive
+        send(Message.watching(true).replyTo(request));
+        MatchStream.Subscription subscription = stream.subscribe(this);
+        if (subscription == null) {
+            state = ConnectionState.LOGGED_IN;
+            send(Message.watching(false).replyTo(request)); // The match ended meanwhile
+            return;
+        }
+        watching = subscription;
+    }
+
+    /**
+     * Sends the best entries of the leaderboard, followed by the rank of the user, which also ends the list.
+     *
+     * @param request the LEADERBOARD request with the number of entries
+     */
+    private void sendLeaderboard(Message request) {
+        Leaderboard leaderboard = context.getLeaderboard();
+        for (ScoreObject entry : leaderboard.top(Math.max(0, Math.min(request.getValue(), MAX_LEADERS)))) {
+            send(Message.leader(entry).replyTo(request));
+        }
+        send(Message.rank(leaderboard.rankOf(user.getUsername()), leaderboard.size()).replyTo(request));
+    }
+
+    /**
+     * Sends the most recent matches of the user, followed by the number of matches played, which also ends
+     * the list. Without a history only the end is sent.
+     *
+     * @param request the HISTORY request with the number of matches
+     */
+    private void sendHistory(Message request) {
+        MatchHistory history = context.getHistory();
+        if (history == null) {
+            send(Message.matches(0).replyTo(request));
+            return;
+        }
+        String username = user.getUsername();
+        for (MatchRecord match : history.recentMatches(username, Math.max(0, Math.min(request.getValue(), MAX_MATCHES)))) {
+            StringBuilder teammates = new StringBuilder();
+            for (int player = 0; player < match.getPlayers(); player++) {
+                if (!match.getUsername(player).equals(username)) {
+                    teammates.append(teammates.length() == 0 ? "" : ", ").append(match.getUsername(player));
+                }
+            }
+            send(Message.match(match.getWords(match.indexOf(username)),
+                    TimeUnit.NANOSECONDS.toMillis(match.getTotalNanos()), teammates.toString()).replyTo(request));
+        }
+        send(Message.matches(history.countMatches(username)).replyTo(request));
+    }
+
+    @Override
+    public boolean isBacklogged() {
+        Connection current = session.getConnection();
+        return current == null || current.isBacklogged(); // Nobody reads the events of a detached session
+    }
+
+    @Override
+    public void onEvent(ByteBuffer frame) {
+        sendFrame(frame);
+    }
+
+    /**
+     * Moves the connection back to the lobby once the watched match is over.
+     *
+     * @param subscription the subscription that ended
+     */
+    @Override
+    public void onEnded(MatchStream.Subscription subscription) {
+        if (!subscription.isCancelled()) { // A cancelled subscription was already left with UNWATCH
+            watching = null;
+            state = ConnectionState.LOGGED_IN;
+        }
+    }
+
+    /**
+     * Delivers a message pushed by a game session to this connection and follows the game on the way,
+     * so answers and spectate requests are only forwarded while they can be accepted.
+     *
+     * @param user    the receiving player
+     * @param message the pushed message
+     */
+    static void deliver(User user, Message message) {
+        ConnectionHandler handler = user.getHandler();
+        handler.follow(message);
+        handler.send(message);
+    }
+
+    /**
+     * Delivers the same message to several players. The message is encoded once into a read-only frame
+     * that every connection queues as it is.
+     *
+     * @param users   the receiving players
+     * @param message the pushed message
+     */
+    static void broadcast(List<User> users, Message message) {
+        ByteBuffer frame = Protocol.encode(message).asReadOnlyBuffer(); // Encoded once for all players
+        for (User teamUser : users) {
+            ConnectionHandler handler = teamUser.getHandler();
+            handler.follow(message);
+            handler.sendFrame(frame.duplicate()); // Every connection reads the frame with its own position
+        }
+    }
+
+    /**
+     * The outbox of all game sessions of the server.
+     */
+    static final GameSession.Outbox OUTBOX = new GameSession.Outbox() {
+
+        @Override
+        public void send(User user, Message message) {
+            deliver(user, message);
+        }
+
+        @Override
+        public void broadcast(List<User> users, Message message) {
+            ConnectionHandler.broadcast(users, message);
+        }
+    };
+
+    /**
+     * Moves the connection state along with the game events pushed to it.
+     *
+     * @param message the pushed message
+     */
+    private void follow(Message message) {
+        switch (message.getType()) {
+            case TEAM_FORMED:
+                state = ConnectionState.TEAMED;
+                break;
+            case GAME_STARTED:
+                state = user.isSpectator() ? ConnectionState.SPECTATING : ConnectionState.IN_GAME; // Members that missed the start only watch
+                break;
+            case SPECTATING:
+                state = ConnectionState.SPECTATING;
+                break;
+            case GAME_OVER:
+                state = ConnectionState.LOGGED_IN;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Sends a response to the client of this connection.
+     *
+     * @param response the response message
+     */
+    void send(Message response) {
+        session.send(Protocol.encode(response));
+    }
+
+    /**
+     * Sends an encoded frame, possibly shared with other connections, to the client of this connection.
+     *
+     * @param frame the encoded frame
+     */
+    void sendFrame(ByteBuffer frame) {
+        session.send(frame);
+    }
+}
@@ -0,0 +1,13 @@
+package com.group15.typefast;
+
+/**
+ * The states a client connection moves through on the server.
+ */
+public enum ConnectionState {
+    REGISTERED, // Connection accepted, user not logged in yet
+    LOGGED_IN,  // User authenticated, may ask for a team
+    TEAMED,     // User is part of a full team, may start the game
+    IN_GAME,    // User is playing and submitting answers
+    SPECTATING, // User left the active play and only receives round updates
+    WATCHING    // User follows the match of another team
+}
@@ -0,0 +1,153 @@
+package com.group15.typefast;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * EventLoop is one NIO I/O thread. It owns a {@link Selector} and every connection registered with it;
+ * all reads, writes, and interest changes of those connections happen on this thread. Other threads
+ * hand work to the loop with {@link #execute(Runnable)}.
+ */
+public class EventLoop implements Runnable {
+
+    private final Selector selector; // Selector multiplexing the connections of this loop
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>(); // Work submitted by other threads
+    private final ArrayDeque<NioConnection> dirty = new ArrayDeque<>(); // Connections to flush at the end of the tick, loop thread only
+    private volatile Thread thread; // Thread running this loop
+    private volatile boolean running = true;
+
+    /**
+     * Opens the selector of the loop.
+     *
+     * @throws IOException if the selector cannot be opened
+     */
+    public EventLoop() throws IOException {
+        this.selector = Selector.open();
+    }
+
+    public Selector getSelector() {
+        return selector;
+    }
+
+    /**
+     * Returns the number of tasks waiting for the loop thread.
+     *
+     * @return the queued task count
+     */
+    public int getPendingTasks() {
+        return tasks.size();
+    }
+
+    /**
+     * Checks whether the caller is the thread of this loop.
+     *
+     * @return true if called from the loop thread
+     */
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Queues a task to run on the loop thread and wakes the selector up.
+     *
+     * @param task the task to run
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        if (!inEventLoop()) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Schedules a connection to be flushed once the current tick has handled all its events, so that
+     * every response produced during the tick leaves in one write. Must be called on the loop thread.
+     *
+     * @param connection the connection with queued responses
+     */
+    void flushLater(NioConnection connection) {
+        dirty.add(connection);
+    }
+
+    /**
+     * Stops the loop after the current iteration.
+     */
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Selects ready connections and dispatches their read and write events until shut down.
+     */
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                Log.error("select_failed", e);
+                break;
+            }
+            runTasks();
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                NioConnection connection = (NioConnection) key.attachment();
+                try {
+                    if (key.isValid() && key.isReadable()) connection.onReadable();
+                    if (key.isValid() && key.isWritable()) connection.onWritable();
+                } catch (IOException e) {
+                    connection.close(); // Drop connections that fail or send malformed frames
+                } catch (RuntimeException e) {
+                    Log.error("connection_failed", e); // A failing connection must not stop the loop
+                    connection.close();
+                }
+            }
+            runTasks();
+            flushDirty();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            Log.warn("selector_close_failed", e);
+        }
+    }
+
+    /**
+     * Writes the responses queued during the tick, one gathering write per connection.
+     */
+    private void flushDirty() {
+        NioConnection connection;
+        while ((connection = dirty.poll()) != null) {
+            try {
+                connection.flush();
+            } catch (RuntimeException e) {
+                Log.error("connection_failed", e); // A failing connection must not stop the loop
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Runs the tasks submitted by other threads.
+     */
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.error("task_failed", e); // A failing task must not stop the loop
+            }
+        }
+    }
+}
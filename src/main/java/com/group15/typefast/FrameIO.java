@@ -0,0 +1,90 @@
+package com.group15.typefast;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * FrameIO implements the length-prefixed framing shared by the client and the server.
+ * Every frame is a 4-byte big-endian length followed by that many payload bytes, so a reader can
+ * always tell whether a complete request has arrived without blocking on a partial one.
+ */
+public final class FrameIO {
+
+    public static final int HEADER_SIZE = 4; // Size of the length prefix
+    public static final int MAX_FRAME_SIZE = 64 * 1024; // Largest payload accepted from a peer
+
+    private FrameIO() {}
+
+    /**
+     * Encodes a message and writes it as one frame, then flushes the stream.
+     *
+     * @param out     the stream to write to
+     * @param message the message to send
+     * @throws IOException if an I/O error occurs
+     */
+    public static void writeMessage(OutputStream out, Message message) throws IOException {
+        ByteBuffer frame = Protocol.encode(message);
+        out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+        out.flush();
+    }
+
+    /**
+     * Writes several messages back to back and flushes the stream once, so pipelined requests leave in
+     * a single packet instead of one round trip each.
+     *
+     * @param out      the stream to write to
+     * @param messages the messages to send, in order
+     * @throws IOException if an I/O error occurs
+     */
+    public static void writeMessages(OutputStream out, Message... messages) throws IOException {
+        for (Message message : messages) {
+            ByteBuffer frame = Protocol.encode(message);
+            out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads and decodes one message from a blocking stream.
+     *
+     * @param in the stream to read from
+     * @return the message, or null if the peer closed the stream
+     * @throws IOException if an I/O error occurs or the frame is invalid
+     */
+    public static Message readMessage(DataInputStream in) throws IOException {
+        byte[] payload = readFrame(in);
+        return payload == null ? null : Protocol.decode(ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Reads one frame from a blocking stream.
+     *
+     * @param in the stream to read from
+     * @return the payload bytes, or null if the peer closed the stream
+     * @throws IOException if an I/O error occurs or the frame is too large
+     */
+    public static byte[] readFrame(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null; // Peer closed the connection between frames
+        }
+        checkLength(length);
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return payload;
+    }
+
+    /**
+     * Validates a frame length received from a peer.
+     *
+     * @param length the announced payload length
+     * @throws IOException if the length is not positive or exceeds {@link #MAX_FRAME_SIZE}
+     */
+    public static void checkLength(int length) throws IOException {
+        if (length <= 0 || length > MAX_FRAME_SIZE) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.group15.typefast;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GameScheduler starts a {@link GameSession} for every team formed by the matchmaker, with words picked
+ * from the {@link WordDictionary} from the easiest tier to the hardest, and runs all
+ * sessions on one small, fixed pool of threads. A session only occupies a thread while it has events
+ * to process, so the number of concurrent games is not bounded by the number of threads. The streams of
+ * the matches in progress are dispatched to their watchers by a second pool, so watchers never take a
+ * thread away from a game. The result of every finished game is recorded in the {@link Leaderboard} and,
+ * if one is configured, queued for the {@link MatchHistory}. A team whose members are not all ready before the
+ * ready timeout starts without the missing ones.
+ */
+public class GameScheduler implements Matchmaker.Listener, GameSession.Listener {
+
+    private final ThreadPoolExecutor executor; // Threads shared by all sessions
+    private final ThreadPoolExecutor spectators; // Threads sending the match streams to the watchers
+    private final Map<Integer, MatchStream> live = new ConcurrentHashMap<>(); // Streams of the matches in progress by team ID
+    private final WordDictionary dictionary; // Words of the games
+    private final int rounds; // Words per game
+    private final long easyLimitMillis; // Time limit of the easiest words, 0 for no time limits
+    private final long hardLimitMillis; // Time limit of the hardest words
+    private final GameSession.Outbox outbox; // Receiver of the messages of all sessions
+    private final Leaderboard leaderboard; // Best game of every player
+    private final MatchHistory history; // Finished matches, null to keep no history
+    private final NonBlockingTimer timer; // Deadlines of the teams getting ready and of the rounds
+    private final long readyTimeoutMillis; // Time a team waits for its members to get ready, 0 to wait forever
+    private final Metrics metrics; // Receiver of the game metrics
+    private final AtomicInteger sessions = new AtomicInteger(); // Number of sessions started
+
+    /**
+     * Creates the scheduler and its threads.
+     *
+     * @param config      the threads, rounds, and time limits of the games
+     * @param dictionary  the words of the games
+     * @param outbox      the receiver of the messages of all sessions
+     * @param leaderboard the leaderboard the results are recorded in
+     * @param history     the history the finished matches are appended to, or null
+     * @param timer       the timer of the ready timeouts and round limits
+     * @param metrics     the receiver of the game metrics
+     */
+    public GameScheduler(ServerConfig config, WordDictionary dictionary, GameSession.Outbox outbox,
+                         Leaderboard leaderboard, MatchHistory history, NonBlockingTimer timer, Metrics metrics) {
+        this.executor = newPool(config.getGameThreads(), "typefast-game-");
+        this.spectators = newPool(config.getGameThreads(), "typefast-spectate-");
+        this.dictionary = dictionary;
+        this.rounds = config.getRounds();
+        this.easyLimitMillis = config.getRoundLimitMillis();
+        this.hardLimitMillis = config.getRoundLimitHardMillis();
+        this.outbox = outbox;
+        this.leaderboard = leaderboard;
+        this.history = history;
+        this.timer = timer;
+        this.readyTimeoutMillis = config.getReadyTimeoutMillis();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Starts the session of a new team.
+     *
+     * @param team the new team with all its members
+     */
+    @Override
+    public void onTeamFormed(Team team) {
+        int teamID = team.getTeamID();
+        MatchStream stream = new MatchStream(teamID, spectators, metrics, () -> live.remove(teamID));
+        long seed = ThreadLocalRandom.current().nextLong();
+        RoundState state = RoundState.generate(dictionary, rounds, seed, easyLimitMillis, hardLimitMillis);
+        GameSession session = new GameSession(team, state, outbox, executor, metrics, stream, this, timer);
+        team.setSession(session);
+        live.put(teamID, stream);
+        sessions.incrementAndGet();
+        Log.debug("game_created", "team", teamID, "seed", seed); // Enough to replay the words of the game
+        session.formed();
+        if (readyTimeoutMillis > 0) {
+            timer.schedule(session::readyTimedOut, readyTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Records the words and typing time of every player of a finished game, and queues the whole match for
+     * the history.
+     *
+     * @param session the finished session
+     */
+    @Override
+    public void onGameFinished(GameSession session) {
+        List<User> players = session.getTeam().getTeamUsers();
+        SplitTimes splits = session.getSplits();
+        for (int player = 0; player < players.size(); player++) {
+            leaderboard.record(players.get(player).getUsername(), splits.getWords(player),
+                    TimeUnit.NANOSECONDS.toMillis(splits.getTypingNanos(player)));
+        }
+        if (history != null) {
+            history.append(MatchRecord.of(session, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Returns the stream of a match in progress.
+     *
+     * @param teamID the team playing the match
+     * @return the stream, or null if the team is not playing
+     */
+    public MatchStream getStream(int teamID) {
+        return live.get(teamID);
+    }
+
+    /**
+     * Returns the number of matches in progress.
+     *
+     * @return the live match count
+     */
+    public int getLiveMatches() {
+        return live.size();
+    }
+
+    /**
+     * Returns the number of sessions started so far.
+     *
+     * @return the started session count
+     */
+    public int getSessions() {
+        return sessions.get();
+    }
+
+    /**
+     * Returns the number of sessions waiting for a thread.
+     *
+     * @return the queued session count
+     */
+    public int getQueuedSessions() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Returns the number of threads currently running a session.
+     *
+     * @return the busy thread count
+     */
+    public int getBusyThreads() {
+        return executor.getActiveCount();
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Creates a fixed pool of daemon threads.
+     */
+    private static ThreadPoolExecutor newPool(int threads, String name) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, name + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
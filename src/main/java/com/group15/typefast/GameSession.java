@@ -0,0 +1,453 @@
+package com.group15.typefast;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * GameSession runs the game of one team: readiness, word selection, the round barrier, spectating, and
+ * scoring. Connections only submit events; the session processes them one at a time on a shared executor
+ * and pushes its responses through an {@link Outbox}. Because a session never runs on two threads at once,
+ * its state needs no locking, and thousands of sessions can share a small pool of threads. Nothing in a
+ * session depends on sockets, so it can be driven directly with a calling-thread executor. Every game event is
+ * also published once to the session's {@link MatchStream}, which serves any number of watchers. A word with a
+ * time limit gets a deadline on a {@link NonBlockingTimer}; when it passes, the players that did not type the word
+ * miss it and the team moves on to the next word.
+ */
+public class GameSession {
+
+    /**
+     * Delivers the messages of a session to the players.
+     */
+    public interface Outbox {
+
+        /**
+         * Sends a message to a player. Must not block.
+         *
+         * @param user    the receiving player
+         * @param message the message
+         */
+        void send(User user, Message message);
+
+        /**
+         * Sends the same message to several players. The default sends it to each of them in turn;
+         * transports can encode it only once.
+         *
+         * @param users   the receiving players
+         * @param message the message
+         */
+        default void broadcast(List<User> users, Message message) {
+            for (User user : users) {
+                send(user, message);
+            }
+        }
+    }
+
+    /**
+     * Receives the result of every finished game.
+     */
+    public interface Listener {
+
+        /**
+         * Called on the session's thread once the game is over, before the players are sent the result.
+         *
+         * @param session the finished session, with its team and split times
+         */
+        void onGameFinished(GameSession session);
+    }
+
+    static final List<String> WORDS = List.of("cat", "animal", "umbrella", "acronym", "difficult", "synchronous", "appropriation", "sophisticated", "apprenticeship", "designation"); // Built-in words, used when no dictionary is configured
+    private static final int BATCH_SIZE = 64; // Events processed before giving the thread to other sessions
+
+    private final Team team; // Team playing this session
+    private final RoundState rounds; // Words of the game and progress through them
+    private final SplitTimes splits; // Timing of every player in every round
+    private final Outbox outbox; // Receiver of the outbound messages
+    private final Executor executor; // Executor running the events
+    private final Metrics metrics; // Receiver of the game metrics
+    private final MatchStream stream; // Events of the match for the watchers
+    private final Listener listener; // Receiver of the result of the game
+    private final NonBlockingTimer timer; // Timer of the round deadlines, null to ignore the time limits
+    private final ConcurrentLinkedQueue<Runnable> inbox = new ConcurrentLinkedQueue<>(); // Events not processed yet
+    private final AtomicBoolean scheduled = new AtomicBoolean(); // True while a drain is queued or running
+
+    private int notReady; // Members that still have to get ready
+    private int activePlayers; // Members still playing
+    private int pending; // Active players that did not answer the current word
+    private NonBlockingTimer.Timeout roundTimeout; // Deadline of the current word, null if none
+
+    /**
+     * Creates the session of a full team.
+     *
+     * @param team     the team to play
+     * @param rounds   the words of the game, before the first one
+     * @param outbox   the receiver of the outbound messages
+     * @param executor the executor running the events
+     * @param metrics  the receiver of the game metrics
+     */
+    public GameSession(Team team, RoundState rounds, Outbox outbox, Executor executor, Metrics metrics) {
+        this(team, rounds, outbox, executor, metrics, new MatchStream(team.getTeamID(), executor, metrics, () -> {}),
+                session -> {}, null);
+    }
+
+    /**
+     * Creates the session of a full team that publishes its events to the given stream.
+     *
+     * @param team     the team to play
+     * @param rounds   the words of the game, before the first one
+     * @param outbox   the receiver of the outbound messages
+     * @param executor the executor running the events
+     * @param metrics  the receiver of the game metrics
+     * @param stream   the stream of the match for the watchers
+     * @param listener the receiver of the result of the game
+     * @param timer    the timer of the round deadlines, or null to ignore the time limits of the words
+     */
+    public GameSession(Team team, RoundState rounds, Outbox outbox, Executor executor, Metrics metrics, MatchStream stream,
+                       Listener listener, NonBlockingTimer timer) {
+        this.team = team;
+        this.rounds = rounds;
+        this.splits = new SplitTimes(team.getTeamUsers().size(), rounds.getRounds());
+        this.outbox = outbox;
+        this.executor = executor;
+        this.metrics = metrics;
+        this.stream = stream;
+        this.listener = listener;
+        this.timer = timer;
+        this.notReady = team.getTeamUsers().size();
+        this.activePlayers = notReady;
+        team.setRoundState(rounds);
+    }
+
+    /**
+     * Tells every member that the team is complete.
+     */
+    public void formed() {
+        submit(() -> {
+            for (User teamUser : team.getTeamUsers()) {
+                teamUser.setTeamd(true); // Update the user's team status
+            }
+            team.broadcast(Message.teamFormed(team.getTeamID()), outbox); // Send team ID to the users
+        });
+    }
+
+    /**
+     * Marks a member as ready. The last member to get ready starts the game.
+     *
+     * @param user the member requesting to start the game
+     */
+    public void ready(User user) {
+        submit(() -> onReady(user));
+    }
+
+    /**
+     * Submits the answer of a player to the current word.
+     *
+     * @param user          the player
+     * @param answer        the answer typed by the player
+     * @param receivedNanos the time the answer was received, from {@link System#nanoTime}
+     */
+    public void answer(User user, String answer, long receivedNanos) {
+        answer(user, Message.answer(answer), receivedNanos);
+    }
+
+    /**
+     * Submits an ANSWER request of a player. The answer is dropped if the round it was typed for is already
+     * over, such as when its time ran out while the answer was on its way; otherwise the reply carries the
+     * correlation ID of the request.
+     *
+     * @param user          the player
+     * @param request       the ANSWER request, with the round it was typed for or -1 for the current word
+     * @param receivedNanos the time the answer was received, from {@link System#nanoTime}
+     */
+    public void answer(User user, Message request, long receivedNanos) {
+        submit(() -> {
+            if (request.getValue() < 0 || request.getValue() == rounds.getRound()) {
+                onAnswer(user, request, receivedNanos);
+            }
+        });
+    }
+
+    /**
+     * Switches a player from playing to spectating.
+     *
+     * @param user the player
+     */
+    public void spectate(User user) {
+        submit(() -> onSpectate(user));
+    }
+
+    public Team getTeam() {
+        return team;
+    }
+
+    public MatchStream getStream() {
+        return stream;
+    }
+
+    public SplitTimes getSplits() {
+        return splits;
+    }
+
+    /**
+     * Takes a member out of the game for good, such as when their session expired. Before the game starts the
+     * member counts as ready, afterwards as a spectator, so the teammates never wait for them.
+     *
+     * @param user the member
+     */
+    public void leave(User user) {
+        submit(() -> onLeave(user));
+    }
+
+    /**
+     * Takes the members that are still not ready out of the game, so the others can start playing. Does nothing
+     * once the game started.
+     */
+    public void readyTimedOut() {
+        submit(() -> {
+            for (User teamUser : team.getTeamUsers()) {
+                if (notReady > 0 && !teamUser.isReady()) {
+                    onLeave(teamUser);
+                }
+            }
+        });
+    }
+
+    public RoundState getRounds() {
+        return rounds;
+    }
+
+    private void onReady(User user) {
+        if (user.isReady()) {
+            return; // Already waiting for the teammates
+        }
+        user.setReady(true); // Set user as ready
+        outbox.send(user, Message.readyWaiting());
+        if (--notReady > 0) {
+            return;
+        }
+        start();
+    }
+
+    /**
+     * Starts the game once every member is ready.
+     */
+    private void start() {
+        pending = activePlayers;
+        if (activePlayers == 0) {
+            rounds.finish(); // Everybody left before the first word
+        }
+        for (User teamUser : team.getTeamUsers()) {
+            teamUser.setInGame(true); // Set the user's in-game status to true
+            teamUser.setScore(0); // Every member starts with the same team score
+        }
+        Message started = Message.gameStarted(team.getTeamID());
+        team.broadcast(started, outbox); // Inform the users that the game has started
+        stream.publish(started, true);
+        nextWord();
+    }
+
+    private void onAnswer(User user, Message request, long receivedNanos) {
+        if (!isActive(user)) {
+            return; // Answers are only accepted from active players while a word is open
+        }
+        String answer = request.getText();
+        String word = rounds.getWord();
+        boolean correct = answer != null && answer.equalsIgnoreCase(word);
+        long split = receivedNanos - rounds.getStartNanos(); // Time since the word was sent
+        splits.answered(team.getTeamUsers().indexOf(user), rounds.getRound(), split, correct);
+        if (correct) {
+            long responseTime = TimeUnit.NANOSECONDS.toMillis(split); // Calculate the response time
+            user.setLastResponseTime(responseTime); // Set the user's last response time
+            user.recordAnswer(responseTime, word.length()); // Update the typing speed used for matchmaking
+            user.setCorrectWordCount(user.getCorrectWordCount() + 1); // Increment the user's correct word count
+            outbox.send(user, Message.correct((int) responseTime).replyTo(request)); // Inform the user that their answer is correct
+            stream.publish(Message.playerAnswered(user.getUsername(), (int) responseTime), false);
+            metrics.answered(true, split, System.nanoTime() - receivedNanos);
+            arrive();
+        } else {
+            outbox.send(user, Message.incorrect().replyTo(request)); // Inform the user that their answer is incorrect
+            metrics.answered(false, split, System.nanoTime() - receivedNanos);
+        }
+    }
+
+    private void onSpectate(User user) {
+        if (!isActive(user)) {
+            return; // Only active players that did not answer yet can start spectating
+        }
+        user.setSpectator(true);
+        outbox.send(user, Message.spectating());
+        activePlayers--;
+        arrive(); // Leaving counts as the player's answer for the current word
+    }
+
+    private void onLeave(User user) {
+        if (user.isSpectator() || user.getTeam() != team) {
+            return; // Already out of the game, or the game is over
+        }
+        boolean arrived = user.isInGame() && !isActive(user); // Answered the current word already
+        user.setSpectator(true);
+        outbox.send(user, Message.spectating());
+        metrics.playerForfeited();
+        activePlayers--;
+        if (!user.isInGame()) {
+            if (!user.isReady()) {
+                user.setReady(true);
+                if (--notReady == 0) {
+                    start();
+                }
+            }
+            return;
+        }
+        if (!arrived && !rounds.isOver()) {
+            arrive(); // Leaving counts as the player's answer for the current word
+        }
+    }
+
+    /**
+     * Ends the round whose time ran out. The active players that did not type the word miss it.
+     *
+     * @param round the round the deadline was set for
+     */
+    private void onTimeUp(int round) {
+        if (rounds.isOver() || rounds.getRound() != round) {
+            return; // The round completed in time
+        }
+        int missed = 0;
+        for (User teamUser : team.getTeamUsers()) {
+            if (isActive(teamUser)) {
+                outbox.send(teamUser, Message.timeUp()); // The split of the player stays without a correct time
+                missed++;
+            }
+        }
+        metrics.roundTimedOut(missed);
+        Log.debug("round_timed_out", "team", team.getTeamID(), "round", round, "missed", missed);
+        completeRound(false);
+    }
+
+    /**
+     * Returns whether a player is still playing and did not answer the current word yet.
+     */
+    private boolean isActive(User user) {
+        return user.isInGame() && !user.isSpectator() && !rounds.isOver()
+                && splits.getCorrectNanos(rounds.getRound(), team.getTeamUsers().indexOf(user)) < 0;
+    }
+
+    /**
+     * Returns whether any player typed the word of a round.
+     */
+    private boolean isTyped(int round) {
+        for (int player = 0; player < team.getTeamUsers().size(); player++) {
+            if (splits.getCorrectNanos(round, player) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts one arrival at the round barrier and moves the team to the next word once every active
+     * player has arrived.
+     */
+    private void arrive() {
+        if (--pending > 0) {
+            return;
+        }
+        completeRound(true);
+    }
+
+    /**
+     * Records the end of the current round and moves the team to the next word. The team scores the round
+     * only if it was typed in time, by every player still playing and at least one of them.
+     *
+     * @param inTime false if the time of the round ran out
+     */
+    private void completeRound(boolean inTime) {
+        if (roundTimeout != null) {
+            roundTimeout.cancel(); // Frees the deadline right away
+            roundTimeout = null;
+        }
+        long duration = System.nanoTime() - rounds.getStartNanos();
+        splits.roundCompleted(rounds.getRound(), duration);
+        team.setTotalTime(TimeUnit.NANOSECONDS.toMillis(splits.getTotalNanos())); // Add the round time
+        metrics.roundCompleted(duration);
+        if (inTime && isTyped(rounds.getRound())) {
+            for (User teamUser : team.getTeamUsers()) {
+                teamUser.setScore(teamUser.getScore() + 1); // Increment the user's score
+            }
+        }
+        pending = activePlayers;
+        rounds.advance();
+        if (activePlayers == 0) {
+            rounds.finish(); // Nobody is left to play, finish the game
+        }
+        team.broadcast(Message.roundComplete(), outbox);
+        stream.publish(Message.roundComplete(), false);
+        nextWord();
+    }
+
+    /**
+     * Sends the word of the current round to every member, or the final result once all words are played.
+     */
+    private void nextWord() {
+        if (rounds.isOver()) {
+            if (Log.isEnabled(Log.Level.INFO)) {
+                Log.info("game_finished", "team", team.getTeamID(), "seed", rounds.getSeed(), "words", rounds.getRound(),
+                        "ms", team.getTotalTime(), "players", splits.summarize(team.getTeamUsers()));
+            }
+            listener.onGameFinished(this);
+            for (User teamUser : team.getTeamUsers()) {
+                Message result = Message.gameOver(teamUser.getScore(), team.getTotalTime()); // The final score and time
+                teamUser.gameOver(); // Reset the user's game state before the player can ask for a new team
+                outbox.send(teamUser, result);
+            }
+            metrics.gameFinished();
+            stream.end(Message.gameOver(rounds.getRound(), team.getTotalTime())); // Watchers get the number of words completed
+            return;
+        }
+        String word = rounds.getWord();
+        rounds.start(); // Start timing the new word
+        long limit = rounds.getLimitNanos();
+        if (timer != null && limit > 0) {
+            int round = rounds.getRound();
+            roundTimeout = timer.schedule(() -> submit(() -> onTimeUp(round)), limit, TimeUnit.NANOSECONDS);
+        }
+        for (User teamUser : team.getTeamUsers()) {
+            outbox.send(teamUser, Message.newWord(teamUser.getScore(), word)); // Send the new word and score
+            teamUser.setCurrentLevel(teamUser.getCurrentLevel() + 1); // Increment the user's level
+        }
+        stream.publish(Message.newWord(rounds.getRound(), word), true); // Watchers get the number of words completed
+    }
+
+    /**
+     * Queues an event and schedules the session unless it is already scheduled.
+     */
+    private void submit(Runnable event) {
+        inbox.add(event);
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Processes a batch of events, then reschedules the session if more events arrived meanwhile.
+     */
+    private void drain() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Runnable event = inbox.poll();
+            if (event == null) {
+                break;
+            }
+            try {
+                event.run();
+            } catch (RuntimeException e) {
+                Log.error("game_event_failed", e, "team", team.getTeamID()); // A failing event must not stop the session
+            }
+        }
+        scheduled.set(false);
+        if (!inbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+}
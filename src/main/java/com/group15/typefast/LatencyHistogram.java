@@ -0,0 +1,105 @@
+package com.group15.typefast;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram counts non-negative values, typically latencies, in logarithmic buckets that keep two
+ * significant digits, in the spirit of HdrHistogram. Every power of two is split into 64 linear
+ * sub-buckets, so a reported percentile is within 1.6% of the recorded value, while the whole range of
+ * {@code long} fits in a few thousand counters. Recording is lock-free and safe from any thread.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6; // Sub-buckets per power of two, as a power of two
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // Linear sub-buckets per power of two
+    private static final int BUCKETS = 64 - SUB_BUCKET_BITS; // Powers of two above the linear range
+    static final int INDEXES = (BUCKETS + 1) * SUB_BUCKETS; // Counters covering every long value
+
+    private final AtomicLongArray counts = new AtomicLongArray(INDEXES); // Values per bucket
+    private final LongAdder count = new LongAdder(); // Number of recorded values
+    private final LongAdder sum = new LongAdder(); // Sum of the recorded values
+    private final AtomicLong max = new AtomicLong(); // Largest recorded value
+
+    /**
+     * Records one value. Negative values are recorded as zero.
+     *
+     * @param value the value
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(indexOf(v));
+        count.increment();
+        sum.add(v);
+        if (v > max.get()) {
+            max.accumulateAndGet(v, Math::max);
+        }
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded values fall, rounded up to the
+     * largest value of its bucket.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the value at the percentile, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueAt(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long total = count.sum();
+        return total == 0 ? 0 : (double) sum.sum() / total;
+    }
+
+    /**
+     * Clears all recorded values. Values recorded concurrently may be partially kept.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * Returns the counter of a value. Values below {@code 2 * SUB_BUCKETS} map to themselves; above, the
+     * bucket is the number of low bits dropped to keep the value within {@code [SUB_BUCKETS, 2 * SUB_BUCKETS)}.
+     */
+    static int indexOf(long value) {
+        int bucket = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (bucket << SUB_BUCKET_BITS) + (int) (value >>> bucket);
+    }
+
+    /**
+     * Returns the largest value counted by a counter.
+     */
+    private static long highestValueAt(int index) {
+        int bucket = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+        long subBucket = index - ((long) bucket << SUB_BUCKET_BITS);
+        return ((subBucket + 1) << bucket) - 1;
+    }
+}
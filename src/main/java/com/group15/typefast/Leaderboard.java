@@ -0,0 +1,128 @@
+package com.group15.typefast;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Leaderboard ranks every player by their best game. The entries are kept in a concurrent skip list, so
+ * recording a game and reading the top entries take O(log n) without any global lock, and games finishing
+ * on different threads never wait for each other; only two results of the same player are serialized.
+ * Ranks are counted by a lock-free Fenwick tree over (score, time) slots, where times are grouped in the
+ * logarithmic buckets of {@link LatencyHistogram}, so "what's my rank" is also O(log n) instead of walking
+ * the list. Players whose times fall in the same bucket share a rank. Reads run concurrently with updates,
+ * so a rank may briefly not reflect a game being recorded at the same time.
+ */
+public class Leaderboard {
+
+    private final int maxScore; // Highest score with its own slots, higher scores share them
+    private final NavigableSet<ScoreObject> ranking = new ConcurrentSkipListSet<>(); // Best entry of every player, best first
+    private final Map<String, ScoreObject> best = new ConcurrentHashMap<>(); // Best entry by username
+    private final AtomicLongArray tree; // Fenwick tree counting the entries per slot, 1-based
+
+    /**
+     * Creates an empty leaderboard.
+     *
+     * @param maxScore the highest expected score, usually the number of words per game
+     */
+    public Leaderboard(int maxScore) {
+        this.maxScore = Math.max(0, maxScore);
+        this.tree = new AtomicLongArray((this.maxScore + 1) * LatencyHistogram.INDEXES + 1);
+    }
+
+    /**
+     * Records the result of a game. Only the best game of each player is kept.
+     *
+     * @param username the player
+     * @param score    the words typed correctly
+     * @param time     the time spent on the correct words, in milliseconds
+     * @return true if the result is the player's new best
+     */
+    public boolean record(String username, int score, long time) {
+        ScoreObject entry = new ScoreObject(username, score, time);
+        return best.compute(username, (name, previous) -> {
+            if (previous != null && previous.compareTo(entry) <= 0) {
+                return previous; // Not better than the best game
+            }
+            if (previous != null) {
+                ranking.remove(previous);
+                add(slotOf(previous), -1);
+            }
+            ranking.add(entry);
+            add(slotOf(entry), 1);
+            return entry;
+        }) == entry;
+    }
+
+    /**
+     * Returns the best entries.
+     *
+     * @param count the number of entries
+     * @return at most {@code count} entries, best first
+     */
+    public List<ScoreObject> top(int count) {
+        List<ScoreObject> top = new ArrayList<>(Math.min(count, 64));
+        for (ScoreObject entry : ranking) {
+            if (top.size() >= count) {
+                break;
+            }
+            top.add(entry);
+        }
+        return top;
+    }
+
+    /**
+     * Returns the rank of a player: one more than the number of players with a strictly better slot.
+     *
+     * @param username the player
+     * @return the rank starting at 1, or 0 if the player has not finished a game
+     */
+    public int rankOf(String username) {
+        ScoreObject entry = best.get(username);
+        if (entry == null) {
+            return 0;
+        }
+        long better = 0;
+        for (int i = slotOf(entry); i > 0; i -= i & -i) {
+            better += tree.get(i);
+        }
+        return (int) better + 1;
+    }
+
+    /**
+     * Returns the best entry of a player.
+     *
+     * @param username the player
+     * @return the entry, or null if the player has not finished a game
+     */
+    public ScoreObject get(String username) {
+        return best.get(username);
+    }
+
+    /**
+     * Returns the number of ranked players.
+     *
+     * @return the player count
+     */
+    public int size() {
+        return best.size();
+    }
+
+    /**
+     * Returns the 0-based slot of an entry. Better entries have lower slots.
+     */
+    private int slotOf(ScoreObject entry) {
+        int score = Math.min(Math.max(0, entry.getScore()), maxScore);
+        return (maxScore - score) * LatencyHistogram.INDEXES + LatencyHistogram.indexOf(Math.max(0, entry.getTime()));
+    }
+
+    private void add(int slot, long delta) {
+        for (int i = slot + 1; i < tree.length(); i += i & -i) {
+            tree.addAndGet(i, delta);
+        }
+    }
+}
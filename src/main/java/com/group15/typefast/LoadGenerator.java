@@ -0,0 +1,276 @@
+package com.group15.typefast;
+
+import java.io.*;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LoadGenerator simulates many bot players against a running server from one JVM, without any console
+ * interaction. Every bot opens its own connection, sends its registration, login, and first team request
+ * in one pipelined write, and plays the given number of games, typing each word at a configurable speed and mistyping it at a configurable rate.
+ * At the end it reports the throughput and latency percentiles of every phase of the game.
+ * Usage: {@code LoadGenerator [host] [port] [bots] [games] [msPerChar] [errorRate]}.
+ */
+public class LoadGenerator {
+
+    private static final int READ_TIMEOUT = 60_000; // Waits longer than this count as stalls
+    private static final int REGISTER_ID = 1; // Correlation IDs of the pipelined requests
+    private static final int LOGIN_ID = 2;
+    private static final int JOIN_ID = 3;
+
+    /**
+     * Measured steps of a bot's session.
+     */
+    enum Phase {
+        CONNECT,  // Opening the connection
+        REGISTER, // Pipelined REGISTER until REGISTERED
+        LOGIN,    // Pipelined REGISTER and LOGIN until LOGIN_RESULT
+        LOBBY,    // Pipelined REGISTER, LOGIN, and MAKE_TEAM until TEAM_WAITING
+        MATCH,    // MAKE_TEAM until TEAM_FORMED
+        START,    // START_GAME until GAME_STARTED, waiting for the teammates to get ready
+        ANSWER,   // ANSWER until CORRECT or INCORRECT, answers cut off by TIME_UP are not recorded
+        ROUND,    // CORRECT until the next word, waiting for the teammates to answer
+        GAME      // GAME_STARTED until GAME_OVER
+    }
+
+    private final String host; // Server host
+    private final int port; // Server port
+    private final int games; // Games played by every bot
+    private final double msPerChar; // Average typing speed of the bots
+    private final double errorRate; // Probability of mistyping a word
+    private final String runId = Long.toString(System.currentTimeMillis(), 36); // Keeps usernames unique across runs
+    private final Map<Phase, LatencyHistogram> latencies = new EnumMap<>(Phase.class); // Latencies in microseconds
+    private final AtomicInteger gamesPlayed = new AtomicInteger(); // Games finished by all bots
+    private final AtomicInteger failures = new AtomicInteger(); // Bots stopped by an error
+    private final AtomicInteger stalls = new AtomicInteger(); // Bots stopped by a server that did not answer
+
+    public LoadGenerator(String host, int port, int games, double msPerChar, double errorRate) {
+        this.host = host;
+        this.port = port;
+        this.games = games;
+        this.msPerChar = msPerChar;
+        this.errorRate = errorRate;
+        for (Phase phase : Phase.values()) {
+            latencies.put(phase, new LatencyHistogram());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        int bots = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        double msPerChar = args.length > 4 ? Double.parseDouble(args[4]) : 50;
+        double errorRate = args.length > 5 ? Double.parseDouble(args[5]) : 0.05;
+
+        LoadGenerator generator = new LoadGenerator(host, port, games, msPerChar, errorRate);
+        System.out.println("Running " + bots + " bots for " + games + " game(s) each, " + msPerChar
+                + "ms per character, " + (errorRate * 100) + "% typos");
+        long start = System.nanoTime();
+        generator.run(bots);
+        generator.report(System.nanoTime() - start);
+    }
+
+    /**
+     * Runs the bots until all of them finished their games or failed.
+     *
+     * @param bots the number of bots
+     * @throws InterruptedException if interrupted while waiting for the bots
+     */
+    public void run(int bots) throws InterruptedException {
+        ExecutorService executor = newBotExecutor();
+        for (int i = 0; i < bots; i++) {
+            String username = "bot-" + runId + "-" + i;
+            executor.execute(() -> play(username));
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.DAYS);
+    }
+
+    /**
+     * Prints the outcome of the run.
+     *
+     * @param elapsedNanos the duration of the run
+     */
+    public void report(long elapsedNanos) {
+        double seconds = Math.max(1, elapsedNanos) / 1e9;
+        System.out.printf("games: %d failed bots: %d stalled bots: %d in %.1fs%n",
+                gamesPlayed.get(), failures.get(), stalls.get(), seconds);
+        System.out.printf("%-9s %9s %9s %9s %9s %9s %9s %9s%n", "phase", "count", "per sec", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<Phase, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            System.out.printf("%-9s %9d %9.0f %9.1f %9.1f %9.1f %9.1f %9.1f%n", entry.getKey(), histogram.getCount(),
+                    histogram.getCount() / seconds, histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(90) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMax() / 1000.0);
+        }
+    }
+
+    /**
+     * Plays the whole session of one bot.
+     *
+     * @param username the username of the bot
+     */
+    private void play(String username) {
+        long start = System.nanoTime();
+        try (Socket socket = new Socket(host, port)) {
+            socket.setSoTimeout(READ_TIMEOUT);
+            socket.setTcpNoDelay(true);
+            record(Phase.CONNECT, start);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            start = System.nanoTime();
+            FrameIO.writeMessages(out, Message.register(username, "secret").withCorrelation(REGISTER_ID),
+                    Message.login(username, "secret").withCorrelation(LOGIN_ID), Message.makeTeam().withCorrelation(JOIN_ID));
+            boolean formed = enterLobby(in, start);
+
+            for (int game = 0; game < games; game++) {
+                playGame(out, in, game == 0 ? start : -1, game == 0 && formed);
+                gamesPlayed.incrementAndGet();
+            }
+            FrameIO.writeMessage(out, Message.quit());
+        } catch (SocketTimeoutException e) {
+            stalls.incrementAndGet(); // The server did not answer in time
+        } catch (IOException e) {
+            failures.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for the responses to the pipelined registration, login, and team request, which may arrive in
+     * any order: the registration is only answered once it is durable.
+     *
+     * @return true if the team was already formed meanwhile
+     */
+    private boolean enterLobby(DataInputStream in, long start) throws IOException {
+        boolean formed = false;
+        int pending = 3;
+        while (pending > 0) {
+            Message message = expect(in, MessageType.REGISTERED, MessageType.LOGIN_RESULT, MessageType.TEAM_WAITING,
+                    MessageType.TEAM_FORMED);
+            switch (message.getCorrelation()) {
+                case REGISTER_ID:
+                    record(Phase.REGISTER, start);
+                    pending--;
+                    break;
+                case LOGIN_ID:
+                    if (!message.isSuccess()) {
+                        throw new IOException("Login failed");
+                    }
+                    record(Phase.LOGIN, start);
+                    pending--;
+                    break;
+                case JOIN_ID:
+                    record(Phase.LOBBY, start);
+                    pending--;
+                    break;
+                default:
+                    record(Phase.MATCH, start); // TEAM_FORMED is pushed without a correlation ID
+                    formed = true;
+                    break;
+            }
+        }
+        return formed;
+    }
+
+    /**
+     * Plays one game: teams up, gets ready, and answers every word until the game is over.
+     *
+     * @param joined the time the team was requested, or -1 to request it now
+     * @param formed whether the team was already formed
+     */
+    private void playGame(DataOutputStream out, DataInputStream in, long joined, boolean formed)
+            throws IOException, InterruptedException {
+        long start = joined < 0 ? send(out, Message.makeTeam()) : joined;
+        if (!formed) {
+            expect(in, MessageType.TEAM_FORMED);
+            record(Phase.MATCH, start);
+        }
+        start = send(out, Message.startGame());
+        expect(in, MessageType.GAME_STARTED);
+        record(Phase.START, start);
+        long gameStart = System.nanoTime();
+
+        Message message = expect(in, MessageType.NEW_WORD);
+        for (int round = 0; message.getType() == MessageType.NEW_WORD; round++) {
+            String word = message.getText();
+            boolean typo = ThreadLocalRandom.current().nextDouble() < errorRate;
+            Message result;
+            do {
+                type(word);
+                start = send(out, Message.answer(round, typo ? word + "x" : word));
+                result = expect(in, MessageType.CORRECT, MessageType.INCORRECT, MessageType.TIME_UP);
+                if (result.getType() != MessageType.TIME_UP) {
+                    record(Phase.ANSWER, start);
+                }
+                typo = false; // The bot notices its typo and types the word again
+            } while (result.getType() == MessageType.INCORRECT);
+
+            start = System.nanoTime();
+            message = expect(in, MessageType.NEW_WORD, MessageType.GAME_OVER);
+            record(Phase.ROUND, start);
+        }
+        record(Phase.GAME, gameStart);
+    }
+
+    /**
+     * Waits as long as a player of the configured speed needs to type a word, give or take half of it.
+     */
+    private void type(String word) throws InterruptedException {
+        double delay = word.length() * msPerChar * (0.5 + ThreadLocalRandom.current().nextDouble());
+        Thread.sleep((long) delay);
+    }
+
+    /**
+     * Sends a request.
+     *
+     * @return the time the request was sent, in nanoseconds
+     */
+    private static long send(DataOutputStream out, Message request) throws IOException {
+        long start = System.nanoTime();
+        FrameIO.writeMessage(out, request);
+        return start;
+    }
+
+    /**
+     * Reads messages until one of the expected types arrives, skipping the intermediate notifications.
+     */
+    private static Message expect(DataInputStream in, MessageType... types) throws IOException {
+        while (true) {
+            Message message = FrameIO.readMessage(in);
+            if (message == null) {
+                throw new EOFException("Server closed the connection");
+            }
+            for (MessageType type : types) {
+                if (message.getType() == type) {
+                    return message;
+                }
+            }
+        }
+    }
+
+    private void record(Phase phase, long startNanos) {
+        latencies.get(phase).record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Creates the executor running one bot per thread, using virtual threads when the JVM has them.
+     */
+    private static ExecutorService newBotExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(); // Platform threads before Java 21
+        }
+    }
+}
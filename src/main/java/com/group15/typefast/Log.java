@@ -0,0 +1,319 @@
+package com.group15.typefast;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log is the asynchronous, structured logger of the server. A call neither formats nor blocks: it claims
+ * a slot of a bounded lock-free ring buffer and returns. A single writer thread drains the buffer in
+ * batches, formats every event as one {@code time level [thread] event key=value...} line, and writes it
+ * to a rolling file or the standard output. When the buffer is full the event is dropped and counted instead of
+ * making a game or I/O thread wait; the writer reports the number of dropped events in the log.
+ */
+public final class Log {
+
+    /**
+     * Severity of an event, in increasing order.
+     */
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR
+    }
+
+    /**
+     * An event waiting in the ring buffer.
+     */
+    private static final class Event {
+        final long time; // Time of the event, in milliseconds
+        final Level level;
+        final String thread; // Name of the logging thread
+        final String name; // What happened
+        final Object[] fields; // Alternating keys and values
+        final Throwable error; // Cause of the event, or null
+
+        Event(Level level, String name, Object[] fields, Throwable error) {
+            this.time = System.currentTimeMillis();
+            this.level = level;
+            this.thread = Thread.currentThread().getName();
+            this.name = name;
+            this.fields = fields;
+            this.error = error;
+        }
+    }
+
+    private static final int CAPACITY = 1 << 16; // Events the buffer holds, a power of two
+    private static final int MASK = CAPACITY - 1;
+    private static final int BATCH_SIZE = 1024; // Events written between two flushes
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1); // Writer sleep when the buffer is empty
+
+    // Ring buffer: a slot is free for the producer at position p when its sequence is p, and readable
+    // by the writer at position p when its sequence is p + 1.
+    private static final Event[] events = new Event[CAPACITY];
+    private static final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+    private static final AtomicLong tail = new AtomicLong(); // Next position claimed by a producer
+    private static long head; // Next position read by the writer, only used by the writer thread
+    private static final AtomicLong dropped = new AtomicLong(); // Events lost because the buffer was full
+
+    private static volatile Level level = Level.INFO; // Least severe level that is logged
+    private static volatile Thread writer; // Thread draining the buffer, null until started
+    private static volatile boolean running;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    private Log() {
+    }
+
+    /**
+     * Starts the writer thread. Events logged before are kept until the buffer is full.
+     *
+     * @param minLevel the least severe level that is logged
+     * @param file     the log file, or null to write to the standard output
+     * @param maxBytes the size after which the file is rolled over
+     * @param files    the number of rolled files kept besides the current one
+     */
+    public static synchronized void start(Level minLevel, Path file, long maxBytes, int files) {
+        if (writer != null) {
+            return; // Already started
+        }
+        level = minLevel;
+        running = true;
+        Thread thread = new Thread(() -> writeLoop(file, maxBytes, files), "typefast-log");
+        thread.setDaemon(true);
+        thread.start();
+        writer = thread;
+    }
+
+    /**
+     * Writes the remaining events and stops the writer thread.
+     */
+    public static void stop() {
+        Thread thread = writer;
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static boolean isEnabled(Level eventLevel) {
+        return eventLevel.compareTo(level) >= 0;
+    }
+
+    public static boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public static void debug(String event, Object... fields) {
+        log(Level.DEBUG, event, null, fields);
+    }
+
+    public static void info(String event, Object... fields) {
+        log(Level.INFO, event, null, fields);
+    }
+
+    public static void warn(String event, Throwable error, Object... fields) {
+        log(Level.WARN, event, error, fields);
+    }
+
+    public static void error(String event, Throwable error, Object... fields) {
+        log(Level.ERROR, event, error, fields);
+    }
+
+    /**
+     * Returns the number of events dropped because the buffer was full.
+     *
+     * @return the dropped event count
+     */
+    public static long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Queues an event unless its level is disabled or the buffer is full.
+     */
+    private static void log(Level eventLevel, String name, Throwable error, Object[] fields) {
+        if (!isEnabled(eventLevel)) {
+            return;
+        }
+        Event event = new Event(eventLevel, name, fields, error);
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & MASK);
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    events[index] = event;
+                    sequences.lazySet(index, position + 1); // Publishes the event to the writer
+                    return;
+                }
+                position = tail.get(); // Another producer claimed the slot
+            } else if (sequence < position) {
+                dropped.incrementAndGet(); // The writer is a full lap behind, drop instead of waiting
+                return;
+            } else {
+                position = tail.get(); // Stale position, the slot was claimed and written meanwhile
+            }
+        }
+    }
+
+    /**
+     * Takes the next published event, or returns null if there is none. Only called by the writer thread.
+     */
+    private static Event poll() {
+        int index = (int) (head & MASK);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        Event event = events[index];
+        events[index] = null;
+        sequences.lazySet(index, head + CAPACITY); // Frees the slot for the next lap
+        head++;
+        return event;
+    }
+
+    /**
+     * Drains the buffer in batches until stopped, then writes what is left.
+     */
+    private static void writeLoop(Path file, long maxBytes, int files) {
+        RollingWriter out = new RollingWriter(file, maxBytes, files);
+        long reportedDrops = 0;
+        while (true) {
+            boolean stopping = !running;
+            int written = 0;
+            Event event;
+            while (written < BATCH_SIZE && (event = poll()) != null) {
+                out.write(format(event));
+                written++;
+            }
+            long drops = dropped.get();
+            if (drops != reportedDrops) {
+                out.write(format(new Event(Level.WARN, "log_dropped", new Object[]{"events", drops - reportedDrops}, null)));
+                reportedDrops = drops;
+            }
+            if (written > 0) {
+                out.flush();
+            } else if (stopping) {
+                out.close();
+                return;
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private static String format(Event event) {
+        StringBuilder line = new StringBuilder(128);
+        line.append(Instant.ofEpochMilli(event.time)).append(' ').append(event.level)
+                .append(" [").append(event.thread).append("] ").append(event.name);
+        for (int i = 0; i + 1 < event.fields.length; i += 2) {
+            line.append(' ').append(event.fields[i]).append('=');
+            String value = String.valueOf(event.fields[i + 1]);
+            if (value.indexOf(' ') >= 0 || value.isEmpty()) {
+                line.append('"').append(value.replace("\"", "\\\"")).append('"');
+            } else {
+                line.append(value);
+            }
+        }
+        if (event.error != null) {
+            StringWriter trace = new StringWriter();
+            event.error.printStackTrace(new PrintWriter(trace));
+            line.append(System.lineSeparator()).append(trace.toString().trim());
+        }
+        return line.append(System.lineSeparator()).toString();
+    }
+
+    /**
+     * Writes the formatted lines to a file that is rolled over once it reaches its maximum size:
+     * {@code typefast.log} becomes {@code typefast.log.1}, which becomes {@code typefast.log.2}, and so on.
+     */
+    private static final class RollingWriter {
+        private final Path file; // Current log file, null for the standard output
+        private final long maxBytes; // Size after which the file is rolled over
+        private final int files; // Rolled files kept
+        private Writer out;
+        private long size; // Bytes in the current file
+
+        RollingWriter(Path file, long maxBytes, int files) {
+            this.file = file;
+            this.maxBytes = maxBytes;
+            this.files = files;
+            open();
+        }
+
+        void write(String line) {
+            try {
+                out.write(line);
+                size += line.length();
+                if (file != null && size >= maxBytes) {
+                    roll();
+                }
+            } catch (IOException e) {
+                e.printStackTrace(); // Nowhere else to report a broken log
+            }
+        }
+
+        void flush() {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        void close() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        private void open() {
+            if (file == null) {
+                out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 1 << 16);
+                return;
+            }
+            try {
+                if (file.getParent() != null) {
+                    Files.createDirectories(file.getParent());
+                }
+                size = Files.exists(file) ? Files.size(file) : 0;
+                out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file.toFile(), true), StandardCharsets.UTF_8), 1 << 16);
+            } catch (IOException e) {
+                e.printStackTrace(); // Fall back to the standard output rather than losing the events
+                out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 1 << 16);
+            }
+        }
+
+        private void roll() throws IOException {
+            out.close();
+            if (files == 0) {
+                Files.delete(file); // No history kept, start the file over
+            }
+            for (int i = files; i >= 1; i--) {
+                Path source = i == 1 ? file : file.resolveSibling(file.getFileName() + "." + (i - 1));
+                if (Files.exists(source)) {
+                    Files.move(source, file.resolveSibling(file.getFileName() + "." + i), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            size = 0;
+            open();
+        }
+    }
+}
@@ -0,0 +1,564 @@
+package com.group15.typefast;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * MatchHistory keeps every finished match on disk. Game sessions only queue their result; a single writer
+ * thread collects whatever is queued into one block and commits it with one flush, so game threads never
+ * touch the disk and many matches share the cost of a sync. Blocks are appended to fixed-size, memory-mapped
+ * segment files and read back straight from the mapping. An in-memory index lists the matches of every
+ * player, so "the last matches of a player" only reads those matches, and on startup it is rebuilt from the
+ * username columns alone.
+ *
+ * <p>A block is {@code [int magic][int length][int crc32][body]}, and its body stores each field of its
+ * matches as one column: {@code [int matches][int players][int rounds][int cells][long firstId]}, then
+ * per match {@code endedAt, teamID, seed} and the starts of its players, rounds, and cells, then the
+ * usernames of the players, the words and durations of the rounds, and the correct times and trials of
+ * every player in every round. A text column is {@code [int offsets...][UTF-8 bytes]}. A scan over one
+ * field, like the durations of a word, reads only its columns. A block torn by a crash fails its checksum
+ * and ends the history on the next startup.
+ */
+public class MatchHistory implements Closeable {
+
+    private static final int BLOCK_MAGIC = 0x5446484D; // "TFHM"
+    private static final int BLOCK_HEADER_SIZE = 12; // Magic, length, and checksum of a block
+    private static final int BODY_HEADER_SIZE = 24; // Column sizes and first match ID of a block
+    private static final long SEGMENT_SIZE = 64L * 1024 * 1024; // Default size of a segment file
+    private static final int MAX_BATCH = 1024; // Most matches committed in one block
+
+    private final Path dir; // Directory holding the segments
+    private final long segmentSize; // Size of a new segment file
+    private final BlockingQueue<MatchRecord> queue = new LinkedBlockingQueue<>(); // Matches waiting for the writer
+    private final Map<String, MatchIds> players = new ConcurrentHashMap<>(); // Matches of every player
+    private volatile Block[] blocks = new Block[64]; // Committed blocks in ID order, written by the writer only
+    private volatile int blockCount; // Number of committed blocks
+    private volatile long matches; // Number of committed matches, also the ID of the next match
+    private MappedByteBuffer segment; // Segment the next block is written to, writer only
+    private int segmentNumber; // Number of the current segment
+    private Thread writer; // Group commit thread
+    private volatile boolean closed;
+
+    /**
+     * A block of matches mapped in memory, with the positions of its columns.
+     */
+    private static final class Block {
+        final ByteBuffer data; // Read-only view of the block body, shared by all readers
+        final long firstId; // ID of the first match
+        final int matches, players, rounds; // Rows of the match, player, and round columns
+        final int endedAt, teamID, seed, playerStart, roundStart, cellStart; // Match columns
+        final int usernames, roundNanos, words, correctNanos, trials; // Player, round, and cell columns
+
+        Block(ByteBuffer data) {
+            this.data = data;
+            this.matches = data.getInt(0);
+            this.players = data.getInt(4);
+            this.rounds = data.getInt(8);
+            int cells = data.getInt(12);
+            this.firstId = data.getLong(16);
+            this.endedAt = BODY_HEADER_SIZE;
+            this.teamID = endedAt + 8 * matches;
+            this.seed = teamID + 4 * matches;
+            this.playerStart = seed + 8 * matches;
+            this.roundStart = playerStart + 4 * (matches + 1);
+            this.cellStart = roundStart + 4 * (matches + 1);
+            this.usernames = cellStart + 4 * (matches + 1);
+            this.roundNanos = textEnd(data, usernames, players);
+            this.words = roundNanos + 8 * rounds;
+            this.correctNanos = textEnd(data, words, rounds);
+            this.trials = correctNanos + 8 * cells;
+        }
+
+        /**
+         * Decodes one match of the block.
+         */
+        MatchRecord read(int row) {
+            int p0 = data.getInt(playerStart + 4 * row);
+            int matchPlayers = data.getInt(playerStart + 4 * row + 4) - p0;
+            int r0 = data.getInt(roundStart + 4 * row);
+            int matchRounds = data.getInt(roundStart + 4 * row + 4) - r0;
+            int c0 = data.getInt(cellStart + 4 * row);
+            String[] names = new String[matchPlayers];
+            for (int i = 0; i < matchPlayers; i++) {
+                names[i] = text(data, usernames, p0 + i, players);
+            }
+            String[] wordList = new String[matchRounds];
+            long[] durations = new long[matchRounds];
+            for (int i = 0; i < matchRounds; i++) {
+                wordList[i] = text(data, words, r0 + i, rounds);
+                durations[i] = data.getLong(roundNanos + 8 * (r0 + i));
+            }
+            long[] correct = new long[matchRounds * matchPlayers];
+            int[] submitted = new int[matchRounds * matchPlayers];
+            for (int i = 0; i < correct.length; i++) {
+                correct[i] = data.getLong(correctNanos + 8 * (c0 + i));
+                submitted[i] = data.getInt(trials + 4 * (c0 + i));
+            }
+            return new MatchRecord(firstId + row, data.getInt(teamID + 4 * row), data.getLong(seed + 8 * row),
+                    data.getLong(endedAt + 8 * row), names, wordList, durations, correct, submitted);
+        }
+    }
+
+    /**
+     * The IDs of the matches of one player, in the order they were played. Appended by the writer only;
+     * readers see a consistent prefix without locking.
+     */
+    private static final class MatchIds {
+        private volatile long[] ids = new long[4];
+        private volatile int size;
+
+        void add(long id) {
+            long[] array = ids;
+            if (size == array.length) {
+                array = Arrays.copyOf(array, size * 2);
+                ids = array; // Published before the size that needs it
+            }
+            array[size] = id;
+            size = size + 1;
+        }
+    }
+
+    /**
+     * Opens the history in a directory, creating the directory if needed.
+     *
+     * @param dir the directory holding the segment files
+     * @throws IOException if the directory cannot be created
+     */
+    public MatchHistory(Path dir) throws IOException {
+        this(dir, SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the history in a directory, with segment files of the given size.
+     *
+     * @param dir         the directory holding the segment files
+     * @param segmentSize the size of a new segment file; a larger block gets a segment of its own
+     * @throws IOException if the directory cannot be created
+     */
+    MatchHistory(Path dir, long segmentSize) throws IOException {
+        Files.createDirectories(dir);
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Maps the existing segments, rebuilds the player index, and starts the writer thread.
+     *
+     * @throws IOException if a segment cannot be mapped
+     */
+    public synchronized void load() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("Match history already loaded");
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "matches-*.seg")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null); // Zero-padded numbers sort by name
+        for (int i = 0; i < files.size(); i++) {
+            boolean last = i == files.size() - 1;
+            MappedByteBuffer mapped = map(files.get(i), last, 0);
+            int end = scan(mapped);
+            if (last) {
+                String name = files.get(i).getFileName().toString();
+                segmentNumber = Integer.parseInt(name.substring(8, name.length() - 4));
+                segment = mapped;
+                segment.position(end); // Overwrite a torn block
+            }
+        }
+
+        writer = new Thread(this::writeLoop, "typefast-match-history");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a finished match for the writer. Never blocks.
+     *
+     * @param match the match
+     */
+    public void append(MatchRecord match) {
+        if (closed) {
+            Log.warn("match_dropped", null, "team", match.getTeamID()); // Finished while shutting down
+            return;
+        }
+        queue.add(match);
+    }
+
+    /**
+     * Returns the most recent matches of a player.
+     *
+     * @param username the player
+     * @param limit    the most matches to return
+     * @return the matches, the most recent first
+     */
+    public List<MatchRecord> recentMatches(String username, int limit) {
+        MatchIds list = players.get(username);
+        if (list == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+        int size = list.size;
+        long[] ids = list.ids; // Read after the size, so it holds at least that many IDs
+        List<MatchRecord> recent = new ArrayList<>(Math.min(limit, size));
+        for (int i = size - 1; i >= 0 && recent.size() < limit; i--) {
+            recent.add(read(ids[i]));
+        }
+        return recent;
+    }
+
+    /**
+     * Returns the number of matches a player finished.
+     *
+     * @param username the player
+     * @return the match count
+     */
+    public int countMatches(String username) {
+        MatchIds list = players.get(username);
+        return list == null ? 0 : list.size;
+    }
+
+    /**
+     * Reads one match.
+     *
+     * @param id the ID of the match
+     * @return the match
+     * @throws IllegalArgumentException if no committed match has the ID
+     */
+    public MatchRecord read(long id) {
+        int count = blockCount;
+        Block[] committed = blocks;
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Block block = committed[mid];
+            if (id < block.firstId) {
+                high = mid - 1;
+            } else if (id >= block.firstId + block.matches) {
+                low = mid + 1;
+            } else {
+                return block.read((int) (id - block.firstId));
+            }
+        }
+        throw new IllegalArgumentException("No match " + id);
+    }
+
+    /**
+     * Returns the average duration of the rounds played with a word, scanning only the word and duration
+     * columns of every block. Words are compared as UTF-8 bytes, without decoding.
+     *
+     * @param word the word
+     * @return the average duration in nanoseconds, or -1 if the word was never played
+     */
+    public long averageRoundNanos(String word) {
+        byte[] target = word.getBytes(StandardCharsets.UTF_8);
+        int count = blockCount;
+        Block[] committed = blocks;
+        long rounds = 0;
+        long total = 0;
+        for (int b = 0; b < count; b++) {
+            Block block = committed[b];
+            ByteBuffer data = block.data;
+            int entries = block.rounds;
+            int bytes = block.words + 4 * (entries + 1);
+            for (int i = 0; i < entries; i++) {
+                int start = data.getInt(block.words + 4 * i);
+                int end = data.getInt(block.words + 4 * i + 4);
+                if (end - start == target.length && textEquals(data, bytes + start, target)) {
+                    rounds++;
+                    total += data.getLong(block.roundNanos + 8 * i);
+                }
+            }
+        }
+        return rounds == 0 ? -1 : total / rounds;
+    }
+
+    /**
+     * Returns the number of committed matches.
+     *
+     * @return the match count
+     */
+    public long size() {
+        return matches;
+    }
+
+    /**
+     * Returns the number of matches waiting for the writer.
+     *
+     * @return the queued match count
+     */
+    public int getPendingWrites() {
+        return queue.size();
+    }
+
+    /**
+     * Commits the queued matches and stops the writer.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            if (writer != null) {
+                writer.join(); // The writer drains the queue before it exits
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Collects queued matches into blocks and commits each block with one flush.
+     */
+    private void writeLoop() {
+        List<MatchRecord> batch = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                MatchRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1); // Everything that finished during the last flush
+            } catch (InterruptedException e) {
+                continue;
+            }
+            try {
+                commit(batch);
+            } catch (IOException | RuntimeException e) {
+                Log.error("match_history_write_failed", e, "matches", batch.size()); // Results are lost, games go on
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Encodes a batch as one block at the end of the current segment, starting a new segment if it does not
+     * fit, flushes it, and makes its matches visible to readers.
+     */
+    private void commit(List<MatchRecord> batch) throws IOException {
+        int players = 0;
+        int rounds = 0;
+        int cells = 0;
+        int textBytes = 0;
+        List<byte[]> names = new ArrayList<>();
+        List<byte[]> wordList = new ArrayList<>();
+        for (MatchRecord match : batch) {
+            for (int i = 0; i < match.getPlayers(); i++) {
+                byte[] name = match.getUsername(i).getBytes(StandardCharsets.UTF_8);
+                names.add(name);
+                textBytes += name.length;
+            }
+            for (int i = 0; i < match.getRounds(); i++) {
+                byte[] word = match.getWord(i).getBytes(StandardCharsets.UTF_8);
+                wordList.add(word);
+                textBytes += word.length;
+            }
+            players += match.getPlayers();
+            rounds += match.getRounds();
+            cells += match.getPlayers() * match.getRounds();
+        }
+        int count = batch.size();
+        long size = BODY_HEADER_SIZE + 20L * count + 12L * (count + 1) + 4L * (players + 1) + 4L * (rounds + 1)
+                + 8L * rounds + 12L * cells + textBytes;
+        if (size > Integer.MAX_VALUE - BLOCK_HEADER_SIZE) {
+            throw new IOException("Match batch too large: " + size + " bytes");
+        }
+        int length = (int) size;
+        if (segment == null || segment.remaining() < BLOCK_HEADER_SIZE + length) {
+            segmentNumber++;
+            segment = map(dir.resolve(String.format("matches-%08d.seg", segmentNumber)), true,
+                    Math.max(segmentSize, BLOCK_HEADER_SIZE + length));
+        }
+
+        int start = segment.position();
+        ByteBuffer body = segment.duplicate();
+        body.position(start + BLOCK_HEADER_SIZE).limit(start + BLOCK_HEADER_SIZE + length);
+        body = body.slice();
+        long firstId = matches;
+        body.putInt(count).putInt(players).putInt(rounds).putInt(cells).putLong(firstId);
+        for (MatchRecord match : batch) {
+            body.putLong(match.getEndedAt());
+        }
+        for (MatchRecord match : batch) {
+            body.putInt(match.getTeamID());
+        }
+        for (MatchRecord match : batch) {
+            body.putLong(match.getSeed());
+        }
+        int p = 0;
+        int r = 0;
+        int c = 0;
+        int[] playerStarts = new int[count + 1];
+        int[] roundStarts = new int[count + 1];
+        int[] cellStarts = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            MatchRecord match = batch.get(i);
+            playerStarts[i] = p;
+            roundStarts[i] = r;
+            cellStarts[i] = c;
+            p += match.getPlayers();
+            r += match.getRounds();
+            c += match.getPlayers() * match.getRounds();
+        }
+        playerStarts[count] = p;
+        roundStarts[count] = r;
+        cellStarts[count] = c;
+        putInts(body, playerStarts);
+        putInts(body, roundStarts);
+        putInts(body, cellStarts);
+        putText(body, names);
+        for (MatchRecord match : batch) {
+            for (int i = 0; i < match.getRounds(); i++) {
+                body.putLong(match.getRoundNanos(i));
+            }
+        }
+        putText(body, wordList);
+        for (MatchRecord match : batch) {
+            for (int round = 0; round < match.getRounds(); round++) {
+                for (int player = 0; player < match.getPlayers(); player++) {
+                    body.putLong(match.getCorrectNanos(round, player));
+                }
+            }
+        }
+        for (MatchRecord match : batch) {
+            for (int round = 0; round < match.getRounds(); round++) {
+                for (int player = 0; player < match.getPlayers(); player++) {
+                    body.putInt(match.getTrials(round, player));
+                }
+            }
+        }
+
+        body.flip();
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        segment.putInt(start + 4, length);
+        segment.putInt(start + 8, (int) crc.getValue());
+        segment.putInt(start, BLOCK_MAGIC);
+        segment.force(); // Writes back only the dirty pages
+        segment.position(start + BLOCK_HEADER_SIZE + length);
+        publish(new Block(body.asReadOnlyBuffer()));
+    }
+
+    /**
+     * Validates the blocks of a mapped segment and publishes them.
+     *
+     * @return the position after the last valid block
+     */
+    private int scan(MappedByteBuffer mapped) {
+        CRC32 crc = new CRC32();
+        int position = 0;
+        while (mapped.limit() - position >= BLOCK_HEADER_SIZE && mapped.getInt(position) == BLOCK_MAGIC) {
+            int length = mapped.getInt(position + 4);
+            if (length < BODY_HEADER_SIZE || length > mapped.limit() - position - BLOCK_HEADER_SIZE) {
+                break; // Torn header
+            }
+            ByteBuffer body = mapped.duplicate();
+            body.position(position + BLOCK_HEADER_SIZE).limit(position + BLOCK_HEADER_SIZE + length);
+            body = body.slice();
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != mapped.getInt(position + 8) || body.getLong(16) != matches) {
+                break; // Partially written block
+            }
+            publish(new Block(body.asReadOnlyBuffer()));
+            position += BLOCK_HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    /**
+     * Makes a committed block visible to readers and indexes its players. The block is published before any
+     * index entry points into it, so every ID a reader finds in the index can be read. Writer or loader only.
+     */
+    private void publish(Block block) {
+        Block[] array = blocks;
+        if (blockCount == array.length) {
+            array = Arrays.copyOf(array, blockCount * 2);
+            blocks = array; // Published before the count that needs it
+        }
+        array[blockCount] = block;
+        blockCount = blockCount + 1;
+        matches = block.firstId + block.matches;
+        for (int row = 0; row < block.matches; row++) {
+            int p0 = block.data.getInt(block.playerStart + 4 * row);
+            int p1 = block.data.getInt(block.playerStart + 4 * row + 4);
+            for (int i = p0; i < p1; i++) {
+                players.computeIfAbsent(text(block.data, block.usernames, i, block.players), name -> new MatchIds()).add(block.firstId + row);
+            }
+        }
+    }
+
+    /**
+     * Maps a segment file. The writable segment is mapped at its full size, which creates a sparse file.
+     */
+    private static MappedByteBuffer map(Path file, boolean writable, long size) throws IOException {
+        try (FileChannel channel = writable ? FileChannel.open(file, CREATE, READ, WRITE) : FileChannel.open(file, READ)) {
+            long length = Math.max(size, channel.size());
+            return channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] values) {
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+    }
+
+    private static void putText(ByteBuffer buffer, List<byte[]> values) {
+        int offset = 0;
+        buffer.putInt(offset);
+        for (byte[] value : values) {
+            offset += value.length;
+            buffer.putInt(offset);
+        }
+        for (byte[] value : values) {
+            buffer.put(value);
+        }
+    }
+
+    /**
+     * Returns the position after a text column of the given number of entries.
+     */
+    private static int textEnd(ByteBuffer data, int column, int entries) {
+        return column + 4 * (entries + 1) + data.getInt(column + 4 * entries);
+    }
+
+    private static String text(ByteBuffer data, int column, int index, int entries) {
+        int start = data.getInt(column + 4 * index);
+        int end = data.getInt(column + 4 * index + 4);
+        byte[] bytes = new byte[end - start];
+        ByteBuffer source = data.duplicate();
+        source.position(column + 4 * (entries + 1) + start);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean textEquals(ByteBuffer data, int position, byte[] target) {
+        for (int i = 0; i < target.length; i++) {
+            if (data.get(position + i) != target[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,161 @@
+package com.group15.typefast;
+
+import java.util.List;
+
+/**
+ * MatchRecord is one finished match as kept by the {@link MatchHistory}: the team, its members, the word
+ * and duration of every completed round, and for every player in every round the time to the correct
+ * answer and the number of answers submitted. Per-player values are indexed by {@code round * players + player}
+ * like in {@link SplitTimes}, and a correct time of -1 means the player did not type the word.
+ */
+public class MatchRecord {
+
+    private final long id; // Sequence number in the history, -1 until stored
+    private final int teamID; // Team that played the match
+    private final long seed; // Seed the words were picked with
+    private final long endedAt; // Wall clock time the match ended, in milliseconds since the epoch
+    private final String[] usernames; // Players, in team order
+    private final String[] words; // Word of every completed round
+    private final long[] roundNanos; // Duration of every completed round
+    private final long[] correctNanos; // Time to the correct answer of a player in a round, -1 if none
+    private final int[] trials; // Answers submitted by a player in a round
+
+    public MatchRecord(long id, int teamID, long seed, long endedAt, String[] usernames, String[] words,
+                       long[] roundNanos, long[] correctNanos, int[] trials) {
+        this.id = id;
+        this.teamID = teamID;
+        this.seed = seed;
+        this.endedAt = endedAt;
+        this.usernames = usernames;
+        this.words = words;
+        this.roundNanos = roundNanos;
+        this.correctNanos = correctNanos;
+        this.trials = trials;
+    }
+
+    /**
+     * Copies the result of a finished session. The session must not change anymore.
+     *
+     * @param session the finished session
+     * @param endedAt the time the match ended, in milliseconds since the epoch
+     * @return the record, not stored yet
+     */
+    public static MatchRecord of(GameSession session, long endedAt) {
+        List<User> users = session.getTeam().getTeamUsers();
+        SplitTimes splits = session.getSplits();
+        RoundState rounds = session.getRounds();
+        int players = users.size();
+        int completed = splits.getCompleted();
+        String[] usernames = new String[players];
+        for (int player = 0; player < players; player++) {
+            usernames[player] = users.get(player).getUsername();
+        }
+        String[] words = new String[completed];
+        long[] roundNanos = new long[completed];
+        long[] correctNanos = new long[completed * players];
+        int[] trials = new int[completed * players];
+        for (int round = 0; round < completed; round++) {
+            words[round] = rounds.getWord(round);
+            roundNanos[round] = splits.getRoundNanos(round);
+            for (int player = 0; player < players; player++) {
+                correctNanos[round * players + player] = splits.getCorrectNanos(round, player);
+                trials[round * players + player] = splits.getTrials(round, player);
+            }
+        }
+        return new MatchRecord(-1, session.getTeam().getTeamID(), rounds.getSeed(), endedAt, usernames, words,
+                roundNanos, correctNanos, trials);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getTeamID() {
+        return teamID;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getEndedAt() {
+        return endedAt;
+    }
+
+    public int getPlayers() {
+        return usernames.length;
+    }
+
+    /**
+     * Returns the number of completed rounds, the final score of the team.
+     *
+     * @return the round count
+     */
+    public int getRounds() {
+        return words.length;
+    }
+
+    public String getUsername(int player) {
+        return usernames[player];
+    }
+
+    public String getWord(int round) {
+        return words[round];
+    }
+
+    public long getRoundNanos(int round) {
+        return roundNanos[round];
+    }
+
+    public long getCorrectNanos(int round, int player) {
+        return correctNanos[round * usernames.length + player];
+    }
+
+    public int getTrials(int round, int player) {
+        return trials[round * usernames.length + player];
+    }
+
+    /**
+     * Returns the index of a player in the team.
+     *
+     * @param username the player
+     * @return the index, or -1 if the player did not play the match
+     */
+    public int indexOf(String username) {
+        for (int player = 0; player < usernames.length; player++) {
+            if (usernames[player].equals(username)) {
+                return player;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of words a player typed correctly.
+     *
+     * @param player the index of the player in the team
+     * @return the word count
+     */
+    public int getWords(int player) {
+        int count = 0;
+        for (int round = 0; round < words.length; round++) {
+            if (getCorrectNanos(round, player) >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the time played, summed over the completed rounds.
+     *
+     * @return the total time in nanoseconds
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (long nanos : roundNanos) {
+            total += nanos;
+        }
+        return total;
+    }
+}
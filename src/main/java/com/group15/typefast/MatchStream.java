@@ -0,0 +1,234 @@
+package com.group15.typefast;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * MatchStream is the live event stream of one match, followed by any number of watchers. The game session
+ * is its only writer: it encodes every event once and publishes the frame into a fixed ring buffer. Each
+ * watcher only owns a cursor into the ring, and a single dispatch task on a separate executor moves all
+ * cursors forward, so watchers never run on the session's thread and never slow the match down. A watcher
+ * that falls a full ring behind, or whose connection is backlogged, is skipped ahead to the start of the
+ * current word instead of being sent every event it missed.
+ */
+public class MatchStream {
+
+    /**
+     * Receives the events of a watched match.
+     */
+    public interface Watcher {
+
+        /**
+         * Returns whether the watcher is too far behind to be sent events now.
+         *
+         * @return true if events should be skipped
+         */
+        boolean isBacklogged();
+
+        /**
+         * Sends one event. The frame is shared with every other watcher and must not be modified.
+         *
+         * @param frame the encoded event
+         */
+        void onEvent(ByteBuffer frame);
+
+        /**
+         * Tells the watcher that the match is over, after its last event.
+         *
+         * @param subscription the subscription that ended
+         */
+        void onEnded(Subscription subscription);
+    }
+
+    /**
+     * The link between a stream and one watcher, until the match ends or the watcher cancels it.
+     */
+    public static final class Subscription {
+        private final Watcher watcher;
+        private long cursor; // Sequence of the next event to send, dispatch task only
+        private boolean lagging; // True if events were skipped and the watcher resumes from the current word, dispatch task only
+        private volatile boolean cancelled; // Set by the watcher to stop receiving events
+
+        Subscription(Watcher watcher) {
+            this.watcher = watcher;
+        }
+
+        /**
+         * Stops the events. Events already being sent may still arrive.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    static final int CAPACITY = 256; // Events kept in the ring, a power of two
+    private static final int MASK = CAPACITY - 1;
+
+    private final int teamID; // Team playing the match
+    private final Executor executor; // Executor running the dispatch task
+    private final Metrics metrics; // Receiver of the spectator metrics
+    private final Runnable onEnd; // Called once the last event is published
+    private final ByteBuffer[] frames = new ByteBuffer[CAPACITY]; // Published events by sequence
+    private volatile long published; // Number of events published, written by the session only
+    private volatile long keyFrame; // Sequence of the event a skipped watcher resumes from
+    private volatile boolean ended; // Set once the last event is published
+    private final ConcurrentLinkedQueue<Subscription> joining = new ConcurrentLinkedQueue<>(); // Watchers not seen by the dispatch task yet
+    private final List<Subscription> subscriptions = new ArrayList<>(); // Current watchers, dispatch task only
+    private final AtomicBoolean scheduled = new AtomicBoolean(); // True while a dispatch is queued or running
+    private volatile int watchers; // Number of current watchers
+
+    /**
+     * Creates the stream of a match.
+     *
+     * @param teamID   the team playing the match
+     * @param executor the executor running the dispatch task
+     * @param metrics  the receiver of the spectator metrics
+     * @param onEnd    called once the last event is published
+     */
+    public MatchStream(int teamID, Executor executor, Metrics metrics, Runnable onEnd) {
+        this.teamID = teamID;
+        this.executor = executor;
+        this.metrics = metrics;
+        this.onEnd = onEnd;
+    }
+
+    /**
+     * Publishes an event. Only called by the game session.
+     *
+     * @param event the event
+     * @param key   whether a skipped watcher should resume from this event
+     */
+    void publish(Message event, boolean key) {
+        long sequence = published;
+        frames[(int) (sequence & MASK)] = Protocol.encode(event).asReadOnlyBuffer();
+        if (key) {
+            keyFrame = sequence;
+        }
+        published = sequence + 1; // Makes the frame visible to the dispatch task
+        if (watchers > 0 || !joining.isEmpty()) {
+            schedule();
+        }
+    }
+
+    /**
+     * Publishes the last event of the match. Only called by the game session.
+     *
+     * @param event the last event
+     */
+    void end(Message event) {
+        publish(event, true);
+        ended = true;
+        onEnd.run();
+        schedule(); // Ends the current watchers
+    }
+
+    /**
+     * Starts sending the events to a watcher, from the start of the current word.
+     *
+     * @param watcher the watcher
+     * @return the subscription, or null if the match is already over
+     */
+    public Subscription subscribe(Watcher watcher) {
+        if (ended) {
+            return null;
+        }
+        Subscription subscription = new Subscription(watcher);
+        joining.add(subscription);
+        metrics.spectatorJoined();
+        schedule(); // Also ends the watcher if the match ended meanwhile
+        return subscription;
+    }
+
+    public int getTeamID() {
+        return teamID;
+    }
+
+    public int getWatchers() {
+        return watchers;
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::dispatch);
+        }
+    }
+
+    /**
+     * Sends every watcher the events published since its cursor, then runs again if more events or
+     * watchers arrived meanwhile.
+     */
+    private void dispatch() {
+        boolean last = ended; // Read before the events, so the last event is among them
+        long end = published;
+        try {
+            long resume = keyFrame;
+            Subscription joined;
+            while ((joined = joining.poll()) != null) {
+                joined.cursor = resume; // New watchers start with the current word
+                subscriptions.add(joined);
+            }
+            Iterator<Subscription> iterator = subscriptions.iterator();
+            while (iterator.hasNext()) {
+                Subscription subscription = iterator.next();
+                if (!subscription.cancelled) {
+                    send(subscription, end, resume, last);
+                    if (!last) {
+                        continue;
+                    }
+                    subscription.watcher.onEnded(subscription);
+                }
+                iterator.remove();
+                metrics.spectatorLeft();
+            }
+            watchers = subscriptions.size();
+        } catch (RuntimeException e) {
+            Log.error("spectate_dispatch_failed", e, "team", teamID); // A failing watcher must not stop the stream
+        }
+        scheduled.set(false);
+        boolean more = published != end && watchers > 0 || ended != last || !joining.isEmpty();
+        if (more && scheduled.compareAndSet(false, true)) {
+            executor.execute(this::dispatch);
+        }
+    }
+
+    /**
+     * Sends the events of one watcher up to the given sequence. A backlogged watcher is sent nothing and
+     * later resumes from the current word, except for the end of the match, which every watcher is sent.
+     */
+    private void send(Subscription subscription, long end, long resume, boolean last) {
+        Watcher watcher = subscription.watcher;
+        if (watcher.isBacklogged()) {
+            subscription.lagging = true;
+            if (!last) {
+                return;
+            }
+        }
+        long cursor = subscription.cursor;
+        if (subscription.lagging || end - cursor >= CAPACITY) {
+            cursor = Math.max(cursor, Math.max(resume, end - CAPACITY + 1)); // Skip what the watcher missed
+            subscription.lagging = false;
+            metrics.spectatorSkipped();
+        }
+        int sent = 0;
+        for (; cursor < end; cursor++) {
+            ByteBuffer frame = frames[(int) (cursor & MASK)];
+            if (published - cursor >= CAPACITY) {
+                subscription.lagging = true; // Overwritten while sending, skip ahead next time
+                break;
+            }
+            watcher.onEvent(frame.duplicate());
+            sent++;
+        }
+        subscription.cursor = cursor;
+        metrics.spectatorEventsSent(sent);
+    }
+}
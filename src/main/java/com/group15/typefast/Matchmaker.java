@@ -0,0 +1,336 @@
+package com.group15.typefast;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Matchmaker is the lobby of the server. It groups players of similar typing speed so that no team
+ * member stalls the round barrier of the others. Waiting players are kept in buckets of their rolling
+ * {@link User#getRating() rating}, indexed by a sorted concurrent map, where consecutive buckets differ by a
+ * fixed ratio of speed. A team forms as soon as one bucket holds enough players. The longer a player
+ * waits, the more neighbouring buckets it accepts teammates from, until after the maximum wait it
+ * accepts anyone, so slow lobbies still start games. There is no global lock: every bucket has its own,
+ * so players joining different buckets never wait for each other, and a team within one bucket only takes
+ * that bucket's lock. While players wait, the lobby keeps one deadline on the shared {@link NonBlockingTimer},
+ * every relaxation interval, at which the ranges of all overdue players widen, oldest first; only a team formed
+ * across buckets locks several of them, always in ascending order. An empty lobby has no deadline.
+ */
+public class Matchmaker {
+
+    /**
+     * Receives the teams formed by the matchmaker.
+     */
+    public interface Listener {
+
+        /**
+         * Called once per formed team, on the matchmaker's executor.
+         *
+         * @param team the new team with all its members
+         */
+        void onTeamFormed(Team team);
+    }
+
+    static final double DEFAULT_RATING = 250; // Milliseconds per character assumed for unrated players
+    private static final double BUCKET_RATIO = 1.25; // Speed ratio between two consecutive buckets
+
+    /**
+     * A player waiting in the lobby.
+     */
+    private static final class Ticket {
+        final User user;
+        final Bucket bucket; // Skill bucket of the player
+        final long since; // Time the player joined, in nanoseconds
+        volatile boolean claimed; // True once the player is in a team or left, written under the bucket's lock
+
+        Ticket(User user, Bucket bucket, long since) {
+            this.user = user;
+            this.bucket = bucket;
+            this.since = since;
+        }
+    }
+
+    /**
+     * The waiting players of one skill bucket. Buckets grow geometrically, so there are only a few dozen, and
+     * they stay in the index once created.
+     */
+    private static final class Bucket {
+        final int key; // Skill bucket
+        final ReentrantLock lock = new ReentrantLock(); // Guards the tickets, never pins a virtual thread
+        final LinkedHashSet<Ticket> tickets = new LinkedHashSet<>(); // Unclaimed players, oldest first
+
+        Bucket(int key) {
+            this.key = key;
+        }
+    }
+
+    private final int teamSize; // Players per team
+    private final long relaxNanos; // Wait after which a player accepts teammates one more bucket away
+    private final long maxWaitNanos; // Wait after which a player accepts teammates of any skill
+    private final Listener listener; // Receiver of the formed teams
+    private final Executor executor; // Executor notifying the formed teams and widening the skill ranges
+    private final NonBlockingTimer timer; // Timer of the relaxation deadline
+    private final Metrics metrics; // Receiver of the lobby waits
+    private final ConcurrentSkipListMap<Integer, Bucket> buckets = new ConcurrentSkipListMap<>(); // Skill buckets by key
+    private final ConcurrentLinkedQueue<Ticket> arrivals = new ConcurrentLinkedQueue<>(); // Waiting players, oldest first; claimed ones are dropped by the next relaxation
+    private final ConcurrentHashMap<User, Ticket> tickets = new ConcurrentHashMap<>(); // Ticket of every waiting player
+    private final AtomicInteger waiting = new AtomicInteger(); // Players in the buckets not claimed by a team yet
+    private final AtomicInteger nextTeamID = new AtomicInteger(); // Team ID generator
+    private final AtomicBoolean relaxing = new AtomicBoolean(); // True while a relaxation is scheduled or running
+
+    /**
+     * Creates a matchmaker.
+     *
+     * @param teamSize      the number of players per team
+     * @param relaxMillis   the wait after which a player accepts teammates one more skill bucket away
+     * @param maxWaitMillis the wait after which a player accepts teammates of any skill
+     * @param listener      the receiver of the formed teams
+     * @param executor      the executor used to notify the formed teams and to widen the skill ranges
+     * @param timer         the timer of the relaxation deadline
+     * @param metrics       the receiver of the lobby waits
+     */
+    public Matchmaker(int teamSize, long relaxMillis, long maxWaitMillis, Listener listener, Executor executor,
+                      NonBlockingTimer timer, Metrics metrics) {
+        if (teamSize < 1) {
+            throw new IllegalArgumentException("Team size must be positive: " + teamSize);
+        }
+        if (relaxMillis < 1) {
+            throw new IllegalArgumentException("Relaxation interval must be positive: " + relaxMillis);
+        }
+        this.teamSize = teamSize;
+        this.relaxNanos = TimeUnit.MILLISECONDS.toNanos(relaxMillis);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.listener = listener;
+        this.executor = executor;
+        this.timer = timer;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Puts a player in the lobby and forms a team if its skill bucket is complete. A player that is already
+     * waiting, or whose team was formed but not started yet, is ignored.
+     *
+     * @param user the player looking for a team
+     */
+    public void join(User user) {
+        Bucket bucket = buckets.computeIfAbsent(bucketOf(user.getRating()), Bucket::new);
+        Ticket ticket = new Ticket(user, bucket, System.nanoTime());
+        if (user.getTeam() != null || tickets.putIfAbsent(user, ticket) != null) {
+            return; // Already teamed, or still waiting
+        }
+        if (user.getTeam() != null) {
+            tickets.remove(user, ticket); // Teamed while joining: a team sets the team before it drops the ticket
+            return;
+        }
+        Team team;
+        bucket.lock.lock();
+        try {
+            if (ticket.claimed) {
+                return; // Left before it was queued
+            }
+            bucket.tickets.add(ticket);
+            waiting.incrementAndGet();
+            team = bucket.tickets.size() >= teamSize ? formTeam(ticket, 0, List.of(bucket)) : null;
+        } finally {
+            bucket.lock.unlock();
+        }
+        if (team != null) {
+            notifyTeam(team);
+        } else {
+            arrivals.add(ticket);
+        }
+        scheduleRelaxation();
+    }
+
+    /**
+     * Takes a player out of the lobby, such as when its session expired before a team was found.
+     *
+     * @param user the waiting player
+     * @return true if the player was waiting
+     */
+    public boolean leave(User user) {
+        Ticket ticket = tickets.get(user);
+        if (ticket == null) {
+            return false; // Not waiting, or already in a team
+        }
+        Bucket bucket = ticket.bucket;
+        bucket.lock.lock();
+        try {
+            if (ticket.claimed) {
+                return false; // Claimed by a team meanwhile
+            }
+            ticket.claimed = true;
+            if (bucket.tickets.remove(ticket)) {
+                waiting.decrementAndGet();
+            }
+        } finally {
+            bucket.lock.unlock();
+        }
+        tickets.remove(user, ticket);
+        return true;
+    }
+
+    /**
+     * Widens the accepted skill range of the players who waited long enough and forms the teams this
+     * allows, oldest player first. Only one relaxation runs at a time.
+     */
+    private void relax() {
+        long now = System.nanoTime();
+        List<Team> teams = new ArrayList<>();
+        for (Iterator<Ticket> it = arrivals.iterator(); it.hasNext(); ) {
+            Ticket ticket = it.next();
+            if (ticket.claimed) {
+                it.remove(); // In a team or gone
+                continue;
+            }
+            if (now - ticket.since < relaxNanos || waiting.get() < teamSize) {
+                break; // Younger players still wait for their own bucket
+            }
+            long waited = now - ticket.since;
+            int spread = waited >= maxWaitNanos ? Integer.MAX_VALUE : (int) (waited / relaxNanos);
+            List<Bucket> range = lockRange(ticket.bucket.key, spread);
+            try {
+                Team team = ticket.claimed ? null : formTeam(ticket, spread, range);
+                if (team != null) {
+                    teams.add(team);
+                }
+            } finally {
+                for (Bucket bucket : range) {
+                    bucket.lock.unlock();
+                }
+            }
+        }
+        relaxing.set(false);
+        scheduleRelaxation();
+        for (Team team : teams) {
+            notifyTeam(team);
+        }
+    }
+
+    /**
+     * Sets the next relaxation deadline one interval from now, unless one is set or nobody waits. The deadline
+     * only hands the work to the executor, since timer tasks must not wait for a lock.
+     */
+    private void scheduleRelaxation() {
+        if (waiting.get() > 0 && relaxing.compareAndSet(false, true)) {
+            timer.schedule(() -> executor.execute(this::relax), relaxNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Locks the buckets within the given distance of a bucket, in ascending order like every other caller.
+     *
+     * @return the locked buckets, in ascending order
+     */
+    private List<Bucket> lockRange(int bucket, int spread) {
+        int from = (int) Math.max(Integer.MIN_VALUE, (long) bucket - spread);
+        int to = (int) Math.min(Integer.MAX_VALUE, (long) bucket + spread);
+        List<Bucket> range = new ArrayList<>(buckets.subMap(from, true, to, true).values());
+        for (Bucket locked : range) {
+            locked.lock.lock();
+        }
+        return range;
+    }
+
+    /**
+     * Forms a team around a waiting player with the closest players within the given number of buckets,
+     * the oldest first within a bucket. Must be called with the locks of the given buckets held.
+     *
+     * @param ticket the player the team is formed around
+     * @param spread the largest accepted bucket distance
+     * @param range  the locked buckets, in ascending order, including the bucket of the player
+     * @return the team, or null if not enough players are close enough
+     */
+    private Team formTeam(Ticket ticket, int spread, List<Bucket> range) {
+        List<Ticket> members = new ArrayList<>(teamSize);
+        members.add(ticket);
+
+        int lower = range.size() - 1; // Own bucket first, then the ones below
+        while (range.get(lower) != ticket.bucket) {
+            lower--;
+        }
+        int upper = lower + 1;
+        while (members.size() < teamSize) {
+            long lowerDistance = lower < 0 ? Long.MAX_VALUE : (long) ticket.bucket.key - range.get(lower).key;
+            long upperDistance = upper >= range.size() ? Long.MAX_VALUE : (long) range.get(upper).key - ticket.bucket.key;
+            boolean fromLower = lowerDistance <= upperDistance;
+            if (Math.min(lowerDistance, upperDistance) > spread) {
+                return null; // Not enough players close enough yet
+            }
+            Bucket nearest = range.get(fromLower ? lower-- : upper++);
+            for (Ticket candidate : nearest.tickets) {
+                if (candidate != ticket) {
+                    members.add(candidate);
+                    if (members.size() == teamSize) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        long now = System.nanoTime();
+        ArrayList<User> users = new ArrayList<>(teamSize);
+        for (Ticket member : members) {
+            users.add(member.user);
+        }
+        Team team = new Team(nextTeamID.getAndIncrement(), users);
+        metrics.teamFormed();
+        for (Ticket member : members) {
+            metrics.teamJoined(now - member.since);
+            member.claimed = true;
+            member.bucket.tickets.remove(member);
+            waiting.decrementAndGet();
+            member.user.setTeamID(team.getTeamID());
+            member.user.setTeam(team); // Before the ticket is dropped, so a concurrent join sees the team
+            tickets.remove(member.user, member);
+        }
+        return team;
+    }
+
+    private void notifyTeam(Team team) {
+        executor.execute(() -> listener.onTeamFormed(team));
+    }
+
+    /**
+     * Returns the skill bucket of a rating. Buckets grow geometrically so that they stay equally
+     * selective for fast and slow typists.
+     *
+     * @param rating the typing speed in milliseconds per character, 0 if unknown
+     * @return the bucket
+     */
+    static int bucketOf(double rating) {
+        double speed = rating > 0 ? rating : DEFAULT_RATING;
+        return (int) Math.floor(Math.log(Math.max(1, speed)) / Math.log(BUCKET_RATIO));
+    }
+
+    public int getTeamSize() {
+        return teamSize;
+    }
+
+    /**
+     * Returns the number of players waiting for a team.
+     *
+     * @return the lobby size
+     */
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    /**
+     * Returns the number of teams formed so far.
+     *
+     * @return the formed team count
+     */
+    public int getTeamsFormed() {
+        return nextTeamID.get();
+    }
+}
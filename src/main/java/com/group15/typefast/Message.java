@@ -0,0 +1,228 @@
+package com.group15.typefast;
+
+/**
+ * Message is one decoded protocol frame. Every type uses a fixed subset of the fields, see {@link MessageType}.
+ * A request may carry a correlation ID, which the server copies to its direct responses, so a client can send
+ * several requests without waiting and still tell which response answers which request.
+ */
+public final class Message {
+
+    private final MessageType type; // Opcode of the message
+    private final int value; // Status, team ID, score, rank, or response time
+    private final long time; // Total game time, or number of ranked players
+    private final String text; // Username, word, answer, or teammates
+    private final String secret; // Password
+    private final int correlation; // ID shared by a request and its responses, 0 if none
+
+    public Message(MessageType type, int value, long time, String text, String secret) {
+        this(type, value, time, text, secret, 0);
+    }
+
+    public Message(MessageType type, int value, long time, String text, String secret, int correlation) {
+        this.type = type;
+        this.value = value;
+        this.time = time;
+        this.text = text;
+        this.secret = secret;
+        this.correlation = correlation;
+    }
+
+    private static Message of(MessageType type) {
+        return new Message(type, 0, 0, null, null);
+    }
+
+    // Requests
+
+    public static Message register(String username, String password) {
+        return new Message(MessageType.REGISTER, 0, 0, username, password);
+    }
+
+    public static Message login(String username, String password) {
+        return new Message(MessageType.LOGIN, 0, 0, username, password);
+    }
+
+    public static Message makeTeam() {
+        return of(MessageType.MAKE_TEAM);
+    }
+
+    public static Message startGame() {
+        return of(MessageType.START_GAME);
+    }
+
+    public static Message answer(String answer) {
+        return answer(-1, answer);
+    }
+
+    /**
+     * Creates an answer to the word of a given round, which the server drops if that round is already over.
+     *
+     * @param round  the round the word was sent for, counting from 0, or -1 for the current word
+     * @param answer the answer typed by the player
+     * @return the ANSWER request
+     */
+    public static Message answer(int round, String answer) {
+        return new Message(MessageType.ANSWER, round, 0, answer, null);
+    }
+
+    public static Message spectate() {
+        return of(MessageType.SPECTATE);
+    }
+
+    public static Message quit() {
+        return of(MessageType.QUIT);
+    }
+
+    public static Message watch(int teamID) {
+        return new Message(MessageType.WATCH, teamID, 0, null, null);
+    }
+
+    public static Message unwatch() {
+        return of(MessageType.UNWATCH);
+    }
+
+    public static Message leaderboard(int count) {
+        return new Message(MessageType.LEADERBOARD, count, 0, null, null);
+    }
+
+    public static Message history(int count) {
+        return new Message(MessageType.HISTORY, count, 0, null, null);
+    }
+
+    public static Message resume(String token, int received) {
+        return new Message(MessageType.RESUME, received, 0, token, null);
+    }
+
+    // Responses
+
+    public static Message registered(boolean success) {
+        return new Message(MessageType.REGISTERED, success ? 1 : 0, 0, null, null);
+    }
+
+    public static Message loginResult(boolean verified) {
+        return new Message(MessageType.LOGIN_RESULT, verified ? 1 : 0, 0, null, null);
+    }
+
+    public static Message teamWaiting() {
+        return of(MessageType.TEAM_WAITING);
+    }
+
+    public static Message teamFormed(int teamID) {
+        return new Message(MessageType.TEAM_FORMED, teamID, 0, null, null);
+    }
+
+    public static Message readyWaiting() {
+        return of(MessageType.READY_WAITING);
+    }
+
+    public static Message gameStarted(int teamID) {
+        return new Message(MessageType.GAME_STARTED, teamID, 0, null, null);
+    }
+
+    public static Message newWord(int score, String word) {
+        return new Message(MessageType.NEW_WORD, score, 0, word, null);
+    }
+
+    public static Message correct(int responseTime) {
+        return new Message(MessageType.CORRECT, responseTime, 0, null, null);
+    }
+
+    public static Message incorrect() {
+        return of(MessageType.INCORRECT);
+    }
+
+    public static Message roundComplete() {
+        return of(MessageType.ROUND_COMPLETE);
+    }
+
+    public static Message spectating() {
+        return of(MessageType.SPECTATING);
+    }
+
+    public static Message gameOver(int score, long totalTime) {
+        return new Message(MessageType.GAME_OVER, score, totalTime, null, null);
+    }
+
+    public static Message watching(boolean success) {
+        return new Message(MessageType.WATCHING, success ? 1 : 0, 0, null, null);
+    }
+
+    public static Message playerAnswered(String username, int responseTime) {
+        return new Message(MessageType.PLAYER_ANSWERED, responseTime, 0, username, null);
+    }
+
+    public static Message leader(ScoreObject entry) {
+        return new Message(MessageType.LEADER, entry.getScore(), entry.getTime(), entry.getUsername(), null);
+    }
+
+    public static Message rank(int rank, int players) {
+        return new Message(MessageType.RANK, rank, players, null, null);
+    }
+
+    public static Message match(int words, long totalTime, String teammates) {
+        return new Message(MessageType.MATCH, words, totalTime, teammates, null);
+    }
+
+    public static Message matches(int count) {
+        return new Message(MessageType.MATCHES, count, 0, null, null);
+    }
+
+    public static Message session(String token) {
+        return new Message(MessageType.SESSION, 0, 0, token, null);
+    }
+
+    public static Message timeUp() {
+        return of(MessageType.TIME_UP);
+    }
+
+    public static Message resumed(int status) {
+        return new Message(MessageType.RESUMED, status, 0, null, null);
+    }
+
+    public MessageType getType() {
+        return type;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public boolean isSuccess() {
+        return value != 0;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getSecret() {
+        return secret;
+    }
+
+    public int getCorrelation() {
+        return correlation;
+    }
+
+    /**
+     * Returns the same message with a correlation ID.
+     *
+     * @param id the correlation ID, 0 for none
+     * @return the correlated message
+     */
+    public Message withCorrelation(int id) {
+        return id == correlation ? this : new Message(type, value, time, text, secret, id);
+    }
+
+    /**
+     * Returns this response with the correlation ID of the request it answers.
+     *
+     * @param request the request
+     * @return the correlated response
+     */
+    public Message replyTo(Message request) {
+        return withCorrelation(request.correlation);
+    }
+}
@@ -0,0 +1,71 @@
+package com.group15.typefast;
+
+/**
+ * The opcodes of the TypeFast wire protocol. Each frame starts with the one-byte code of its type.
+ */
+public enum MessageType {
+    // Requests sent by the client
+    REGISTER(0x01),       // username, password
+    LOGIN(0x02),          // username, password
+    MAKE_TEAM(0x03),      // no fields
+    START_GAME(0x04),     // no fields
+    ANSWER(0x05),         // round or -1 for the current word, answer; dropped once its round is over
+    SPECTATE(0x06),       // no fields
+    QUIT(0x07),           // no fields
+    WATCH(0x08),          // team ID
+    UNWATCH(0x09),        // no fields
+    LEADERBOARD(0x0A),    // number of entries
+    HISTORY(0x0B),        // number of matches
+    RESUME(0x0C),         // frames received since SESSION, session token
+
+    // Responses sent by the server
+    REGISTERED(0x41),     // status byte
+    LOGIN_RESULT(0x42),   // status byte
+    TEAM_WAITING(0x43),   // no fields
+    TEAM_FORMED(0x44),    // team ID
+    READY_WAITING(0x45),  // no fields
+    GAME_STARTED(0x46),   // team ID
+    NEW_WORD(0x47),       // team score, word
+    CORRECT(0x48),        // response time in ms
+    INCORRECT(0x49),      // no fields
+    ROUND_COMPLETE(0x4A), // no fields
+    SPECTATING(0x4B),     // no fields
+    GAME_OVER(0x4C),      // team score, total time in ms
+    WATCHING(0x4D),       // status byte
+    PLAYER_ANSWERED(0x4E), // response time in ms, username
+    LEADER(0x4F),         // words, time in ms, username
+    RANK(0x50),           // rank of the user, number of ranked players
+    MATCH(0x51),          // words typed by the user, time played in ms, teammates
+    MATCHES(0x52),        // number of matches played by the user
+    SESSION(0x53),        // session token
+    RESUMED(0x54),        // status byte: 0 unknown session, 1 resumed, 2 resumed with missed frames lost
+    TIME_UP(0x55);        // no fields
+
+    private static final MessageType[] BY_CODE = new MessageType[128]; // Lookup table for decoding
+
+    static {
+        for (MessageType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final byte code;
+
+    MessageType(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * Looks up the type of an opcode.
+     *
+     * @param code the opcode read from a frame
+     * @return the message type, or null if the opcode is unknown
+     */
+    public static MessageType fromCode(byte code) {
+        return code >= 0 ? BY_CODE[code] : null;
+    }
+}
@@ -0,0 +1,293 @@
+package com.group15.typefast;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics collects the latency histograms, counters, and gauges of the server. Recording a value is a
+ * few atomic additions without any allocation or lock, so the metrics can stay enabled under full load.
+ * Histograms are in microseconds. The values are read by the {@link MetricsEndpoint} and through JMX.
+ */
+public class Metrics implements MetricsMXBean {
+
+    private final LatencyHistogram loginLatency = new LatencyHistogram(); // Credential check of a login
+    private final LatencyHistogram teamWait = new LatencyHistogram(); // Time a player waited in the lobby
+    private final LatencyHistogram roundDuration = new LatencyHistogram(); // Time from a word to the end of its round
+    private final LatencyHistogram answerAck = new LatencyHistogram(); // Time from an answer to its response
+    private final LatencyHistogram responseTime = new LatencyHistogram(); // Time from a word to a player's correct answer
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder connectionsClosed = new LongAdder();
+    private final LongAdder teamsFormed = new LongAdder();
+    private final LongAdder gamesFinished = new LongAdder();
+    private final LongAdder answers = new LongAdder();
+    private final LongAdder incorrectAnswers = new LongAdder();
+    private final LongAdder messagesSent = new LongAdder(); // Responses handed to a socket
+    private final LongAdder socketWrites = new LongAdder(); // Write calls carrying those responses
+    private final LongAdder slowClientsClosed = new LongAdder(); // Connections closed for not reading their responses
+    private final LongAdder spectatorsJoined = new LongAdder(); // Subscriptions to a match stream
+    private final LongAdder spectatorsLeft = new LongAdder(); // Subscriptions ended or cancelled
+    private final LongAdder spectatorEvents = new LongAdder(); // Match events sent to watchers
+    private final LongAdder spectatorSkips = new LongAdder(); // Times a slow watcher was skipped ahead
+    private final LongAdder sessionsResumed = new LongAdder(); // Sessions moved to a new connection
+    private final LongAdder sessionsExpired = new LongAdder(); // Detached sessions given up
+    private final LongAdder idleClosed = new LongAdder(); // Connections closed for sending no requests
+    private final LongAdder playersForfeited = new LongAdder(); // Players taken out of their match for good
+    private final LongAdder roundsTimedOut = new LongAdder(); // Rounds ended by their time limit
+    private final LongAdder wordsMissed = new LongAdder(); // Words players did not type in time
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>(); // Sampled values by name
+
+    private long rateSampleTime = System.nanoTime(); // Time of the last answer rate sample
+    private long rateSampleAnswers; // Answer count at the last sample
+    private double answersPerSecond; // Answer rate between the last two samples
+
+    public void connectionOpened() {
+        connectionsOpened.increment();
+    }
+
+    public void connectionClosed() {
+        connectionsClosed.increment();
+    }
+
+    public void loggedIn(long nanos) {
+        loginLatency.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * Records a player leaving the lobby for a team.
+     *
+     * @param waitNanos the time the player waited
+     */
+    public void teamJoined(long waitNanos) {
+        teamWait.record(TimeUnit.NANOSECONDS.toMicros(waitNanos));
+    }
+
+    public void teamFormed() {
+        teamsFormed.increment();
+    }
+
+    public void gameFinished() {
+        gamesFinished.increment();
+    }
+
+    public void roundCompleted(long nanos) {
+        roundDuration.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * Records an answer checked by a game session.
+     *
+     * @param correct    whether the answer was correct
+     * @param splitNanos the time from sending the word to receiving the answer
+     * @param ackNanos   the time from receiving the answer to sending its response
+     */
+    public void answered(boolean correct, long splitNanos, long ackNanos) {
+        answers.increment();
+        if (correct) {
+            responseTime.record(TimeUnit.NANOSECONDS.toMicros(splitNanos));
+        } else {
+            incorrectAnswers.increment();
+        }
+        answerAck.record(TimeUnit.NANOSECONDS.toMicros(ackNanos));
+    }
+
+    /**
+     * Records one write to a socket.
+     *
+     * @param messages the number of responses carried by the write
+     */
+    public void socketWritten(int messages) {
+        socketWrites.increment();
+        messagesSent.add(messages);
+    }
+
+    public void slowClientClosed() {
+        slowClientsClosed.increment();
+    }
+
+    public void sessionResumed() {
+        sessionsResumed.increment();
+    }
+
+    public void sessionExpired() {
+        sessionsExpired.increment();
+    }
+
+    public void idleClosed() {
+        idleClosed.increment();
+    }
+
+    public void playerForfeited() {
+        playersForfeited.increment();
+    }
+
+    /**
+     * Records a round that ended by its time limit.
+     *
+     * @param missed the players that did not type the word in time
+     */
+    public void roundTimedOut(int missed) {
+        roundsTimedOut.increment();
+        wordsMissed.add(missed);
+    }
+
+    public void spectatorJoined() {
+        spectatorsJoined.increment();
+    }
+
+    public void spectatorLeft() {
+        spectatorsLeft.increment();
+    }
+
+    public void spectatorEventsSent(int events) {
+        spectatorEvents.add(events);
+    }
+
+    public void spectatorSkipped() {
+        spectatorSkips.increment();
+    }
+
+    /**
+     * Registers a value sampled whenever the metrics are read, such as a queue depth.
+     *
+     * @param name  the name of the gauge
+     * @param value the supplier of the current value
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Renders every metric in a plain text format, one {@code name value} line per value.
+     *
+     * @return the metrics as text
+     */
+    public String render() {
+        StringBuilder text = new StringBuilder(2048);
+        line(text, "typefast_connections_opened_total", getConnectionsOpened());
+        line(text, "typefast_connections_active", getActiveConnections());
+        line(text, "typefast_teams_formed_total", getTeamsFormed());
+        line(text, "typefast_teams_active", getActiveTeams());
+        line(text, "typefast_answers_total", getAnswers());
+        line(text, "typefast_answers_incorrect_total", getIncorrectAnswers());
+        line(text, "typefast_messages_sent_total", messagesSent.sum());
+        line(text, "typefast_socket_writes_total", socketWrites.sum());
+        line(text, "typefast_slow_clients_closed_total", slowClientsClosed.sum());
+        line(text, "typefast_spectators_active", getActiveSpectators());
+        line(text, "typefast_spectator_events_total", spectatorEvents.sum());
+        line(text, "typefast_spectator_skips_total", spectatorSkips.sum());
+        line(text, "typefast_sessions_resumed_total", sessionsResumed.sum());
+        line(text, "typefast_sessions_expired_total", sessionsExpired.sum());
+        line(text, "typefast_idle_connections_closed_total", idleClosed.sum());
+        line(text, "typefast_players_forfeited_total", playersForfeited.sum());
+        line(text, "typefast_rounds_timed_out_total", roundsTimedOut.sum());
+        line(text, "typefast_words_missed_total", wordsMissed.sum());
+        text.append("typefast_answers_per_second ").append(String.format("%.1f", getAnswersPerSecond())).append('\n');
+        histogram(text, "typefast_login_latency_us", loginLatency);
+        histogram(text, "typefast_team_wait_us", teamWait);
+        histogram(text, "typefast_round_duration_us", roundDuration);
+        histogram(text, "typefast_answer_ack_us", answerAck);
+        histogram(text, "typefast_response_time_us", responseTime);
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            line(text, "typefast_" + gauge.getKey(), gauge.getValue().getAsLong());
+        }
+        return text.toString();
+    }
+
+    private static void line(StringBuilder text, String name, long value) {
+        text.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void histogram(StringBuilder text, String name, LatencyHistogram histogram) {
+        for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            text.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(histogram.getValueAtPercentile(quantile * 100)).append('\n');
+        }
+        line(text, name + "_max", histogram.getMax());
+        line(text, name + "_count", histogram.getCount());
+    }
+
+    @Override
+    public long getConnectionsOpened() {
+        return connectionsOpened.sum();
+    }
+
+    @Override
+    public long getActiveConnections() {
+        return connectionsOpened.sum() - connectionsClosed.sum();
+    }
+
+    @Override
+    public long getTeamsFormed() {
+        return teamsFormed.sum();
+    }
+
+    @Override
+    public long getActiveTeams() {
+        return teamsFormed.sum() - gamesFinished.sum();
+    }
+
+    @Override
+    public long getActiveSpectators() {
+        return spectatorsJoined.sum() - spectatorsLeft.sum();
+    }
+
+    @Override
+    public long getAnswers() {
+        return answers.sum();
+    }
+
+    @Override
+    public long getIncorrectAnswers() {
+        return incorrectAnswers.sum();
+    }
+
+    /**
+     * Returns the answer rate, sampled over at least one second between two reads.
+     *
+     * @return the answers per second
+     */
+    @Override
+    public synchronized double getAnswersPerSecond() {
+        long now = System.nanoTime();
+        long elapsed = now - rateSampleTime;
+        if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+            long total = answers.sum();
+            answersPerSecond = (total - rateSampleAnswers) * 1e9 / elapsed;
+            rateSampleTime = now;
+            rateSampleAnswers = total;
+        }
+        return answersPerSecond;
+    }
+
+    @Override
+    public long getLoginLatencyP99() {
+        return loginLatency.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getTeamWaitP99() {
+        return teamWait.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getRoundDurationP99() {
+        return roundDuration.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getAnswerAckP99() {
+        return answerAck.getValueAtPercentile(99);
+    }
+
+    @Override
+    public String getGauges() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            text.append(gauge.getKey()).append('=').append(gauge.getValue().getAsLong()).append('\n');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package com.group15.typefast;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MetricsEndpoint serves the server {@link Metrics} as plain text on {@code http://localhost:<port>/metrics}.
+ * It only listens on the loopback interface and is served by the JDK's built-in HTTP server.
+ */
+public class MetricsEndpoint {
+
+    private final HttpServer server; // JDK HTTP server answering the scrapes
+
+    /**
+     * Starts the endpoint.
+     *
+     * @param port    the local port to listen on
+     * @param metrics the metrics to serve
+     * @throws IOException if the port cannot be bound
+     */
+    public MetricsEndpoint(int port, Metrics metrics) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 16);
+        server.createContext("/metrics", exchange -> respond(exchange, metrics.render()));
+        server.start();
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Stops the endpoint.
+     */
+    public void stop() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,39 @@
+package com.group15.typefast;
+
+/**
+ * Management interface of the server {@link Metrics}, registered with the platform MBean server as
+ * {@code com.group15.typefast:type=Metrics}. Latencies are in microseconds.
+ */
+public interface MetricsMXBean {
+
+    long getConnectionsOpened();
+
+    long getActiveConnections();
+
+    long getTeamsFormed();
+
+    long getActiveTeams();
+
+    long getActiveSpectators();
+
+    long getAnswers();
+
+    long getIncorrectAnswers();
+
+    double getAnswersPerSecond();
+
+    long getLoginLatencyP99();
+
+    long getTeamWaitP99();
+
+    long getRoundDurationP99();
+
+    long getAnswerAckP99();
+
+    /**
+     * Returns the current value of every registered gauge, as {@code name=value} lines.
+     *
+     * @return the gauges
+     */
+    String getGauges();
+}
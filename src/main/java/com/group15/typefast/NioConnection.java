@@ -0,0 +1,221 @@
+package com.group15.typefast;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NioConnection is a non-blocking client connection served by an {@link EventLoop}. It assembles
+ * request frames from whatever bytes are available, decodes complete frames in place and passes them to
+ * its {@link ConnectionHandler}, and queues encoded responses until the socket can accept them. All
+ * responses queued during one tick of the loop leave in a single gathering write.
+ */
+public class NioConnection implements Connection {
+
+    private static final int READ_BUFFER_SIZE = 4096; // Initial size of the read buffer
+    private static final int MAX_GATHER = 64; // Responses passed to one gathering write
+    private static final long HIGH_WATERMARK = 256 * 1024; // Unsent bytes above which requests are no longer read
+    private static final long LOW_WATERMARK = 64 * 1024; // Unsent bytes below which requests are read again
+    private static final long MAX_QUEUED_BYTES = 4 * 1024 * 1024; // Unsent bytes above which the client is dropped
+
+    private final SocketChannel channel; // Non-blocking client channel
+    private final EventLoop loop; // Loop owning this connection
+    private final ConnectionHandler handler; // State machine of this connection
+    private final Metrics metrics; // Counts the open connections
+    private final AtomicBoolean closed = new AtomicBoolean(); // Set by the first close
+    private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>(); // Responses not yet written
+    private final AtomicLong queuedBytes = new AtomicLong(); // Bytes of the responses not yet written
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(); // True while a flush is pending on the loop
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER]; // Buffers of one gathering write, loop thread only
+    private boolean readPaused; // True while requests are not read because of unsent responses, loop thread only
+    private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE); // Bytes of incomplete frames
+    private SelectionKey key; // Registration with the loop's selector
+
+    /**
+     * Creates a connection for an accepted channel.
+     *
+     * @param channel   the accepted client channel
+     * @param loop      the loop that will serve the channel
+     * @param context   the server-wide services
+     */
+    public NioConnection(SocketChannel channel, EventLoop loop, ServerContext context) {
+        this.channel = channel;
+        this.loop = loop;
+        this.handler = new ConnectionHandler(this, context);
+        this.metrics = context.getMetrics();
+    }
+
+    /**
+     * Registers the channel for read events. Must be called on the loop thread.
+     *
+     * @throws IOException if the channel cannot be registered
+     */
+    void register() throws IOException {
+        channel.configureBlocking(false);
+        key = channel.register(loop.getSelector(), SelectionKey.OP_READ, this);
+        metrics.connectionOpened();
+    }
+
+    /**
+     * Reads the available bytes and handles every complete frame among them.
+     *
+     * @throws IOException if the channel fails or a frame is invalid
+     */
+    void onReadable() throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            close(); // Client closed the connection
+            return;
+        }
+        readBuffer.flip();
+        while (readBuffer.remaining() >= FrameIO.HEADER_SIZE) {
+            int length = readBuffer.getInt(readBuffer.position());
+            FrameIO.checkLength(length);
+            if (readBuffer.remaining() < FrameIO.HEADER_SIZE + length) {
+                break; // Wait for the rest of the frame
+            }
+            int end = readBuffer.position() + FrameIO.HEADER_SIZE + length;
+            ByteBuffer payload = readBuffer.duplicate();
+            payload.position(readBuffer.position() + FrameIO.HEADER_SIZE).limit(end);
+            readBuffer.position(end);
+            if (!handler.onMessage(Protocol.decode(payload))) {
+                close(); // Client asked to quit
+                return;
+            }
+        }
+        readBuffer.compact();
+        if (!readBuffer.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.min(readBuffer.capacity() * 2, FrameIO.HEADER_SIZE + FrameIO.MAX_FRAME_SIZE));
+            readBuffer.flip();
+            larger.put(readBuffer);
+            readBuffer = larger;
+        }
+    }
+
+    /**
+     * Continues writing queued responses once the socket accepts data again.
+     */
+    void onWritable() {
+        flush();
+    }
+
+    /**
+     * Queues an encoded response. Responses queued before the loop gets to this connection are coalesced
+     * into a single write at the end of the loop's tick. A client whose unread responses exceed
+     * {@link #MAX_QUEUED_BYTES} is disconnected instead of letting the queue grow without bound.
+     *
+     * @param message the response message
+     */
+    @Override
+    public void write(Message message) {
+        writeFrame(Protocol.encode(message));
+    }
+
+    /**
+     * Queues an encoded frame like {@link #write(Message)}.
+     *
+     * @param frame the encoded frame, possibly shared with other connections
+     */
+    @Override
+    public void writeFrame(ByteBuffer frame) {
+        if (closed.get()) {
+            return; // Nobody is reading anymore
+        }
+        if (queuedBytes.addAndGet(frame.remaining()) > MAX_QUEUED_BYTES) {
+            Log.warn("slow_client_closed", null, "remote", channel.socket().getRemoteSocketAddress(), "queued", queuedBytes.get());
+            metrics.slowClientClosed();
+            close();
+            return;
+        }
+        outbound.add(frame);
+        if (flushScheduled.compareAndSet(false, true)) {
+            if (loop.inEventLoop()) {
+                loop.flushLater(this);
+            } else {
+                loop.execute(() -> loop.flushLater(this));
+            }
+        }
+    }
+
+    /**
+     * Writes the queued responses with gathering writes until the queue is empty or the socket buffer is
+     * full. While too many bytes wait for a slow client, its requests are not read, so it cannot make the
+     * server produce even more responses. Must be called on the loop thread.
+     */
+    void flush() {
+        flushScheduled.set(false); // Responses queued from now on schedule another flush
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        try {
+            while (true) {
+                int count = 0;
+                for (ByteBuffer buffer : outbound) {
+                    gather[count++] = buffer;
+                    if (count == gather.length) {
+                        break;
+                    }
+                }
+                if (count == 0) {
+                    break;
+                }
+                long written = channel.write(gather, 0, count);
+                int sent = 0;
+                while (sent < count && !gather[sent].hasRemaining()) {
+                    outbound.poll();
+                    sent++;
+                }
+                Arrays.fill(gather, 0, count, null);
+                queuedBytes.addAndGet(-written);
+                metrics.socketWritten(sent);
+                if (sent < count) {
+                    break; // The socket buffer is full
+                }
+            }
+        } catch (IOException e) {
+            close();
+            return;
+        }
+
+        long queued = queuedBytes.get();
+        if (queued > HIGH_WATERMARK) {
+            readPaused = true;
+        } else if (queued < LOW_WATERMARK) {
+            readPaused = false;
+        }
+        int ops = outbound.isEmpty() ? 0 : SelectionKey.OP_WRITE; // Resume when writable
+        key.interestOps(readPaused ? ops : ops | SelectionKey.OP_READ);
+    }
+
+    /**
+     * Returns whether more unsent bytes are queued than the high watermark.
+     *
+     * @return true while the client is behind reading its responses
+     */
+    @Override
+    public boolean isBacklogged() {
+        return queuedBytes.get() > HIGH_WATERMARK;
+    }
+
+    /**
+     * Closes the channel, which also cancels its selector registration.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return; // Already closed
+        }
+        metrics.connectionClosed();
+        handler.onClosed();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Log.warn("close_failed", e);
+        }
+    }
+}
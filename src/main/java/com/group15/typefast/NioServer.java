@@ -0,0 +1,83 @@
+package com.group15.typefast;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * NioServer accepts client connections and spreads them round-robin over a small, fixed set of
+ * {@link EventLoop} threads. Connections cost a selector registration instead of a thread, so the
+ * number of connected players is no longer bounded by a thread pool.
+ */
+public class NioServer implements Runnable {
+
+    private final ServerConfig config; // Server settings
+    private final ServerContext context; // Server-wide services
+    private final EventLoop[] loops; // I/O threads serving the connections
+
+    /**
+     * Creates the server and opens the selectors of its event loops.
+     *
+     * @param config  the server settings
+     * @param context the server-wide services
+     * @throws IOException if a selector cannot be opened
+     */
+    public NioServer(ServerConfig config, ServerContext context) throws IOException {
+        this.config = config;
+        this.context = context;
+        this.loops = new EventLoop[config.getIoThreads()];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop();
+        }
+    }
+
+    /**
+     * Starts the event loops and accepts connections on the calling thread.
+     */
+    @Override
+    public void run() {
+        context.getMetrics().gauge("io_pending_tasks", () -> {
+            long pending = 0;
+            for (EventLoop loop : loops) {
+                pending += loop.getPendingTasks();
+            }
+            return pending;
+        });
+        for (int i = 0; i < loops.length; i++) {
+            Thread thread = new Thread(loops[i], "typefast-io-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(config.getPort()), 1024);
+            Log.info("listening", "port", config.getPort(), "mode", "nio", "ioThreads", loops.length);
+
+            int next = 0;
+            while (true) {
+                try {
+                    SocketChannel channel = serverChannel.accept();
+                    channel.socket().setTcpNoDelay(true);
+                    EventLoop loop = loops[next++ % loops.length]; // Spread connections over the loops
+                    NioConnection connection = new NioConnection(channel, loop, context);
+                    loop.execute(() -> {
+                        try {
+                            connection.register();
+                        } catch (IOException e) {
+                            connection.close();
+                        }
+                    });
+                } catch (IOException e) {
+                    Log.warn("accept_failed", e);
+                }
+            }
+        } catch (IOException e) {
+            Log.error("listen_failed", e, "port", config.getPort());
+        } finally {
+            for (EventLoop loop : loops) {
+                loop.shutdown();
+            }
+        }
+    }
+}
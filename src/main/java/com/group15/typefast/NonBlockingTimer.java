@@ -1,5 +1,248 @@
 package com.group15.typefast;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * NonBlockingTimer runs tasks after a delay on a hierarchical timer wheel, so millions of pending deadlines,
+ * such as idle connections, resume windows, and ready timeouts, cost one small object each and no thread.
+ * Time advances in ticks. The first wheel has one slot per tick for the next 64 ticks, and every further wheel
+ * has slots 64 times as wide; a deadline is kept in the finest wheel that reaches it and moves down a wheel each
+ * time the wheel below wraps around, so scheduling, cancelling, and expiring all take constant time. Callers never
+ * wait: new and cancelled timeouts are queued lock-free and only the timer thread touches the wheels. Tasks run on
+ * the timer thread and must not block; tasks that do real work hand it over to another executor.
+ */
 public class NonBlockingTimer {
 
+    private static final int WHEEL_BITS = 6; // Slots per wheel as a power of two
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4; // Wheels, reaching 2^24 ticks ahead
+    private static final long HORIZON = 1L << (WHEEL_BITS * LEVELS); // Ticks reached by the coarsest wheel
+
+    private static final int PENDING = 0; // Timeout states
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    /**
+     * A scheduled task, which can be cancelled until it ran.
+     */
+    public static final class Timeout {
+        private final NonBlockingTimer timer; // Timer holding the timeout
+        private final Runnable task; // Task run at the deadline
+        private final long deadline; // Tick the task is due at
+        private final AtomicInteger state = new AtomicInteger(PENDING); // Pending, cancelled, or expired
+        private Timeout prev; // Neighbours in the slot, only used by the timer thread
+        private Timeout next;
+        private int level = -1; // Wheel and slot holding the timeout, -1 while not in a wheel
+        private int slot;
+
+        private Timeout(NonBlockingTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task unless it already ran or is running.
+         *
+         * @return true if the task will not run
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            timer.pending.decrementAndGet();
+            timer.cancelled.add(this); // Unlinked by the timer thread on its next tick
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    private final long tickNanos; // Duration of one tick
+    private final long startNanos; // Time of tick 0, from System.nanoTime
+    private final Timeout[][] wheels = new Timeout[LEVELS][WHEEL_SIZE]; // Heads of the slot lists
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>(); // Timeouts not in a wheel yet
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>(); // Timeouts to unlink from their wheel
+    private final AtomicInteger pending = new AtomicInteger(); // Timeouts scheduled and not run or cancelled yet
+    private final Thread worker; // Thread advancing the wheels and running the tasks
+    private volatile boolean running = true; // Cleared by stop
+    private long tick; // Next tick to process, only used by the timer thread
+
+    /**
+     * Creates a timer and starts its daemon thread.
+     *
+     * @param name       the name of the timer thread
+     * @param tickMillis the resolution of the timer; tasks run up to one tick late
+     */
+    public NonBlockingTimer(String name, long tickMillis) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("Tick must be positive: " + tickMillis);
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Schedules a task. Never blocks.
+     *
+     * @param task  the task, run once on the timer thread
+     * @param delay the time to wait before running the task
+     * @param unit  the unit of the delay
+     * @return the timeout, which can cancel the task
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        long elapsed = System.nanoTime() - startNanos + Math.max(0, unit.toNanos(delay));
+        Timeout timeout = new Timeout(this, task, (elapsed + tickNanos - 1) / tickNanos); // Never earlier than asked
+        pending.incrementAndGet();
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Returns the number of tasks waiting to run.
+     *
+     * @return the pending task count
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * Stops the timer thread. Pending tasks never run.
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    /**
+     * Advances the wheels tick by tick, sleeping in between.
+     */
+    private void run() {
+        while (running) {
+            long now = (System.nanoTime() - startNanos) / tickNanos; // Latest tick that is due
+            transfer();
+            while (tick <= now) {
+                advance();
+            }
+            long wait = startNanos + tick * tickNanos - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+        }
+    }
+
+    /**
+     * Moves the newly scheduled timeouts into the wheels and drops the cancelled ones.
+     */
+    private void transfer() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            unlink(timeout);
+        }
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.state.get() == PENDING) {
+                insert(timeout);
+            }
+        }
+    }
+
+    /**
+     * Processes the current tick: moves down the timeouts of the coarser wheels that now fit a finer one, then
+     * runs the tasks due.
+     */
+    private void advance() {
+        for (int level = 1; level < LEVELS && (tick & ((1L << (WHEEL_BITS * level)) - 1)) == 0; level++) {
+            int slot = (int) (tick >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+            Timeout timeout = wheels[level][slot];
+            wheels[level][slot] = null;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.level = -1;
+                insert(timeout);
+                timeout = next;
+            }
+        }
+
+        int slot = (int) tick & WHEEL_MASK;
+        Timeout timeout = wheels[0][slot];
+        wheels[0][slot] = null;
+        tick++;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.level = -1;
+            timeout.prev = null;
+            timeout.next = null;
+            if (timeout.state.compareAndSet(PENDING, EXPIRED)) {
+                pending.decrementAndGet();
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    Log.error("timer_task_failed", e); // A failing task must not stop the timer
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * Puts a timeout in the finest wheel that reaches its deadline. Deadlines beyond the coarsest wheel wait in
+     * its last slot and are placed again when it comes around.
+     */
+    private void insert(Timeout timeout) {
+        long deadline = Math.max(timeout.deadline, tick);
+        long ahead = deadline - tick;
+        if (ahead >= HORIZON) {
+            deadline = tick + HORIZON - 1;
+            ahead = HORIZON - 1;
+        }
+        int level = 0;
+        while (ahead >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) (deadline >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+        Timeout head = wheels[level][slot];
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        wheels[level][slot] = timeout;
+        timeout.level = level;
+        timeout.slot = slot;
+    }
+
+    /**
+     * Removes a cancelled timeout from its slot, so it does not stay in memory until its deadline.
+     */
+    private void unlink(Timeout timeout) {
+        if (timeout.level < 0) {
+            return; // Not in a wheel yet, or already run
+        }
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            wheels[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.level = -1;
+    }
 }
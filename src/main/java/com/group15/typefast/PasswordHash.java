@@ -0,0 +1,92 @@
+package com.group15.typefast;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * PasswordHash turns passwords into salted PBKDF2 hashes, so neither the {@link UserRegistry} nor the files of
+ * the {@link UserStore} ever hold a password in plain text. A hash is the text
+ * {@code pbkdf2-sha256$iterations$salt$key}, with the salt and the derived key in Base64; it carries its own
+ * iteration count, so the count can be raised without invalidating the accounts hashed before.
+ */
+public final class PasswordHash {
+
+    public static final int DEFAULT_ITERATIONS = 10_000; // PBKDF2 rounds of a new hash
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256$"; // Marks a hash, unlike a plain password
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+
+    private static final SecureRandom RANDOM = new SecureRandom(); // Source of the salts
+
+    private PasswordHash() {
+    }
+
+    /**
+     * Hashes a password with a new random salt.
+     *
+     * @param password   the password
+     * @param iterations the number of PBKDF2 rounds
+     * @return the encoded hash
+     */
+    public static String hash(String password, int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Iterations must be positive: " + iterations);
+        }
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + '$' + base64.encodeToString(salt) + '$'
+               + base64.encodeToString(derive(password, salt, iterations));
+    }
+
+    /**
+     * Checks a password against a hash, in a time that does not depend on where they differ.
+     *
+     * @param password the password to check
+     * @param hash     the encoded hash
+     * @return true if the password is the one that was hashed
+     */
+    public static boolean matches(String password, String hash) {
+        if (password == null || !isHash(hash)) {
+            return false;
+        }
+        String[] parts = hash.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3) {
+            return false;
+        }
+        try {
+            int iterations = Integer.parseInt(parts[0]);
+            byte[] salt = Base64.getDecoder().decode(parts[1]);
+            byte[] key = Base64.getDecoder().decode(parts[2]);
+            return iterations > 0 && MessageDigest.isEqual(key, derive(password, salt, iterations));
+        } catch (IllegalArgumentException e) {
+            return false; // Malformed count or Base64
+        }
+    }
+
+    /**
+     * Tells a hash apart from a plain password, such as one stored before passwords were hashed.
+     *
+     * @param value the stored value
+     * @return true if the value is an encoded hash
+     */
+    public static boolean isHash(String value) {
+        return value != null && value.startsWith(PREFIX);
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e); // Every Java 8+ runtime has it
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
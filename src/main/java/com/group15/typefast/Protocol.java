@@ -0,0 +1,211 @@
+package com.group15.typefast;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Protocol is the binary codec shared by the client and the server. A frame is a 4-byte length,
+ * a 1-byte opcode, and the fixed fields of the message type: status bytes, big-endian ints and longs,
+ * and strings written as an unsigned 2-byte length followed by UTF-8 bytes. An opcode with its high bit
+ * set is followed by a 4-byte correlation ID before the fields.
+ */
+public final class Protocol {
+
+    private static final int MAX_STRING_SIZE = 0xFFFF; // Longest string that fits the length field
+    private static final int CORRELATED = 0x80; // Opcode flag of a frame carrying a correlation ID
+
+    private Protocol() {}
+
+    /**
+     * Encodes a message into a complete frame, length prefix included.
+     *
+     * @param message the message to encode
+     * @return a buffer positioned at the start of the frame
+     */
+    public static ByteBuffer encode(Message message) {
+        byte[] text = message.getText() == null ? null : utf8(message.getText());
+        byte[] secret = message.getSecret() == null ? null : utf8(message.getSecret());
+        boolean correlated = message.getCorrelation() != 0;
+        int size = 1 + (correlated ? 4 : 0) + bodySize(message.getType(), text, secret);
+
+        ByteBuffer buffer = ByteBuffer.allocate(FrameIO.HEADER_SIZE + size);
+        buffer.putInt(size);
+        if (correlated) {
+            buffer.put((byte) (message.getType().getCode() | CORRELATED));
+            buffer.putInt(message.getCorrelation());
+        } else {
+            buffer.put(message.getType().getCode());
+        }
+        switch (message.getType()) {
+            case REGISTER:
+            case LOGIN:
+                putString(buffer, text);
+                putString(buffer, secret);
+                break;
+            case SESSION:
+                putString(buffer, text);
+                break;
+            case REGISTERED:
+            case LOGIN_RESULT:
+            case WATCHING:
+            case RESUMED:
+                buffer.put((byte) message.getValue());
+                break;
+            case WATCH:
+            case LEADERBOARD:
+            case HISTORY:
+            case TEAM_FORMED:
+            case GAME_STARTED:
+            case CORRECT:
+            case MATCHES:
+                buffer.putInt(message.getValue());
+                break;
+            case ANSWER:
+            case NEW_WORD:
+            case PLAYER_ANSWERED:
+            case RESUME:
+                buffer.putInt(message.getValue());
+                putString(buffer, text);
+                break;
+            case GAME_OVER:
+            case RANK:
+                buffer.putInt(message.getValue());
+                buffer.putLong(message.getTime());
+                break;
+            case LEADER:
+            case MATCH:
+                buffer.putInt(message.getValue());
+                buffer.putLong(message.getTime());
+                putString(buffer, text);
+                break;
+            default:
+                break; // Message types without fields
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodes the payload of one frame.
+     *
+     * @param payload the payload, from the opcode up to the buffer's limit
+     * @return the decoded message
+     * @throws IOException if the opcode is unknown or the payload does not match its layout
+     */
+    public static Message decode(ByteBuffer payload) throws IOException {
+        try {
+            byte code = payload.get();
+            int correlation = (code & CORRELATED) != 0 ? payload.getInt() : 0;
+            MessageType type = MessageType.fromCode((byte) (code & ~CORRELATED));
+            if (type == null) {
+                throw new IOException("Unknown opcode");
+            }
+            return decodeFields(type, payload).withCorrelation(correlation);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated frame", e);
+        }
+    }
+
+    /**
+     * Decodes the fields following the opcode.
+     */
+    private static Message decodeFields(MessageType type, ByteBuffer payload) {
+        switch (type) {
+            case REGISTER:
+            case LOGIN:
+                return new Message(type, 0, 0, getString(payload), getString(payload));
+            case SESSION:
+                return new Message(type, 0, 0, getString(payload), null);
+            case REGISTERED:
+            case LOGIN_RESULT:
+            case WATCHING:
+            case RESUMED:
+                return new Message(type, payload.get(), 0, null, null);
+            case WATCH:
+            case LEADERBOARD:
+            case HISTORY:
+            case TEAM_FORMED:
+            case GAME_STARTED:
+            case CORRECT:
+            case MATCHES:
+                return new Message(type, payload.getInt(), 0, null, null);
+            case ANSWER:
+            case NEW_WORD:
+            case PLAYER_ANSWERED:
+            case RESUME:
+                return new Message(type, payload.getInt(), 0, getString(payload), null);
+            case GAME_OVER:
+            case RANK:
+                return new Message(type, payload.getInt(), payload.getLong(), null, null);
+            case LEADER:
+            case MATCH:
+                return new Message(type, payload.getInt(), payload.getLong(), getString(payload), null);
+            default:
+                return new Message(type, 0, 0, null, null);
+        }
+    }
+
+    /**
+     * Computes the size of the fields following the opcode.
+     */
+    private static int bodySize(MessageType type, byte[] text, byte[] secret) {
+        switch (type) {
+            case REGISTER:
+            case LOGIN:
+                return 4 + text.length + secret.length;
+            case SESSION:
+                return 2 + text.length;
+            case REGISTERED:
+            case LOGIN_RESULT:
+            case WATCHING:
+            case RESUMED:
+                return 1;
+            case WATCH:
+            case LEADERBOARD:
+            case HISTORY:
+            case TEAM_FORMED:
+            case GAME_STARTED:
+            case CORRECT:
+            case MATCHES:
+                return 4;
+            case ANSWER:
+            case NEW_WORD:
+            case PLAYER_ANSWERED:
+            case RESUME:
+                return 6 + text.length;
+            case GAME_OVER:
+            case RANK:
+                return 12;
+            case LEADER:
+            case MATCH:
+                return 14 + text.length;
+            default:
+                return 0;
+        }
+    }
+
+    private static byte[] utf8(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_SIZE) {
+            throw new IllegalArgumentException("String too long for the protocol: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return s;
+    }
+}
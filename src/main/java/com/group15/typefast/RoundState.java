@@ -0,0 +1,161 @@
+package com.group15.typefast;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RoundState is the progress of one team through its game: the whole word sequence, computed once from a
+ * seed when the team is formed, the current round, and the single authoritative time the current word was
+ * sent. It is only used by the team's {@link GameSession}, which advances it exactly once per round, so
+ * it needs no locking. Logging the seed is enough to replay the words of a game against the same dictionary.
+ * Every word can have a time limit, longer for harder words, after which the round ends without the players
+ * that did not type it.
+ */
+public class RoundState {
+
+    private final long seed; // Seed the words were picked with
+    private final List<String> words; // Words of the game, one per round
+    private final long[] limitNanos; // Time limit of every round, null for no limits
+    private int round; // Index of the current word, and number of words completed
+    private boolean finished; // Set when the game ends before all words were played
+    private long startNanos; // Time the current word was sent, from System.nanoTime
+
+    /**
+     * Creates the state of a game with the given words.
+     *
+     * @param seed  the seed the words were picked with
+     * @param words the words of the game, one per round
+     */
+    public RoundState(long seed, List<String> words) {
+        this(seed, words, null);
+    }
+
+    /**
+     * Creates the state of a game with the given words and time limits.
+     *
+     * @param seed       the seed the words were picked with
+     * @param words      the words of the game, one per round
+     * @param limitNanos the time limit of every round, or null for no limits
+     */
+    public RoundState(long seed, List<String> words, long[] limitNanos) {
+        this.seed = seed;
+        this.words = words;
+        this.limitNanos = limitNanos;
+    }
+
+    /**
+     * Picks the words of a game from a dictionary. The same seed, dictionary, and number of rounds always
+     * give the same words.
+     *
+     * @param dictionary the dictionary
+     * @param rounds     the number of rounds
+     * @param seed       the seed of the random picks
+     * @return the state of the game, before its first word
+     */
+    public static RoundState generate(WordDictionary dictionary, int rounds, long seed) {
+        return new RoundState(seed, dictionary.pickWords(rounds, new Random(seed)));
+    }
+
+    /**
+     * Picks the words of a game from a dictionary like {@link #generate(WordDictionary, int, long)}, and gives every
+     * word a time limit scaled by its tier, from the easiest limit for the first tier to the hardest for the last.
+     *
+     * @param dictionary      the dictionary
+     * @param rounds          the number of rounds
+     * @param seed            the seed of the random picks
+     * @param easyLimitMillis the time limit of the easiest words, 0 for no limits
+     * @param hardLimitMillis the time limit of the hardest words
+     * @return the state of the game, before its first word
+     */
+    public static RoundState generate(WordDictionary dictionary, int rounds, long seed, long easyLimitMillis,
+                                      long hardLimitMillis) {
+        if (easyLimitMillis <= 0) {
+            return generate(dictionary, rounds, seed);
+        }
+        int[] indexes = dictionary.pickIndexes(rounds, new Random(seed));
+        int hardest = dictionary.getTiers() - 1;
+        List<String> words = new ArrayList<>(rounds);
+        long[] limitNanos = new long[rounds];
+        for (int round = 0; round < rounds; round++) {
+            words.add(dictionary.word(indexes[round]));
+            double difficulty = hardest == 0 ? 0 : (double) dictionary.tierOf(indexes[round]) / hardest;
+            limitNanos[round] = TimeUnit.MILLISECONDS.toNanos(
+                    easyLimitMillis + Math.round((hardLimitMillis - easyLimitMillis) * difficulty));
+        }
+        return new RoundState(seed, words, limitNanos);
+    }
+
+    /**
+     * Starts the clock of the current word.
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Moves to the next word.
+     *
+     * @return false if all words were played
+     */
+    public boolean advance() {
+        round++;
+        return round < words.size();
+    }
+
+    /**
+     * Ends the game before all words were played.
+     */
+    public void finish() {
+        finished = true;
+    }
+
+    /**
+     * Returns the word of the current round.
+     *
+     * @return the word, or null once all words were played
+     */
+    public String getWord() {
+        return isOver() ? null : words.get(round);
+    }
+
+    /**
+     * Returns the word of a round.
+     *
+     * @param round the round
+     * @return the word
+     */
+    public String getWord(int round) {
+        return words.get(round);
+    }
+
+    public boolean isOver() {
+        return finished || round >= words.size();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getRound() {
+        return round;
+    }
+
+    public int getRounds() {
+        return words.size();
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * Returns the time limit of the current round.
+     *
+     * @return the limit in nanoseconds, 0 if the round has none
+     */
+    public long getLimitNanos() {
+        return limitNanos == null || isOver() ? 0 : limitNanos[round];
+    }
+}
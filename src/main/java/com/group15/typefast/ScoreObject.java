@@ -2,37 +2,64 @@ package com.group15.typefast;
 
 import java.io.Serializable;
 
-@SuppressWarnings("rawtypes")
-public class ScoreObject implements Serializable , Comparable {
-    int score;
-    Long time;
+/**
+ * ScoreObject is one entry of the {@link Leaderboard}: the best game of a player. Entries are ordered
+ * from the best to the worst: more words first, then the shorter time, then the username, so two players
+ * never compare as equal.
+ */
+public class ScoreObject implements Serializable, Comparable<ScoreObject> {
 
-    public ScoreObject(int score, long time){
+    private static final long serialVersionUID = 1L;
+
+    private final String username; // Player of the game
+    private final int score; // Words typed correctly
+    private final long time; // Time spent on the correct words, in milliseconds
+
+    public ScoreObject(String username, int score, long time) {
+        this.username = username;
         this.score = score;
         this.time = time;
     }
 
-    public Long getTime() {
-        return time;
-    }
-
-    public void setTime(Long time) {
-        this.time = time;
+    public String getUsername() {
+        return username;
     }
 
     public int getScore() {
         return score;
     }
 
-    public void setScore(int score) {
-        this.score = score;
+    public long getTime() {
+        return time;
     }
 
+    @Override
+    public int compareTo(ScoreObject o) {
+        if (score != o.score) {
+            return Integer.compare(o.score, score); // More words first
+        }
+        if (time != o.time) {
+            return Long.compare(time, o.time); // Faster first
+        }
+        return username.compareTo(o.username);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ScoreObject)) {
+            return false;
+        }
+        ScoreObject other = (ScoreObject) o;
+        return score == other.score && time == other.time && username.equals(other.username);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * username.hashCode() + score) + Long.hashCode(time);
+    }
 
     @Override
-    public int compareTo(Object o) {
-        long compareScore=((ScoreObject)o).getScore();
-        /* For Ascending order*/
-        return (int) (this.score-compareScore);
+    public String toString() {
+        return username + ":" + score + "/" + time;
     }
-}
\ No newline at end of file
+}
@@ -1,47 +1,226 @@
 package com.group15.typefast;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Server {
 
+    private static final long TIMER_TICK_MILLIS = 10; // Resolution of the connection and match deadlines
+
     public static void main(String[] args) {
-        int port = 8080; // Initialize port number
-        List<ScoreObject> scoreList = new ArrayList<>(15);
-        ArrayList<User> usersList = new ArrayList<>(15);
-        ArrayList<Boolean> stat = new ArrayList<>(15);
-        for (int i = 0; i < 15; i++) {
-            stat.add(false);
+        ServerConfig config = ServerConfig.fromSystemProperties(); // Read the server settings
+        Log.start(config.getLogLevel(), config.getLogFile().isEmpty() ? null : Paths.get(config.getLogFile()),
+                config.getLogMaxBytes(), config.getLogFiles());
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::stop)); // Write the pending events on exit
+
+        Metrics metrics = new Metrics(); // Latencies, counters, and gauges of the server
+        UserRegistry users; // Registered users, indexed by username
+        WordDictionary dictionary; // Words of the games
+        MatchHistory history; // Finished matches
+        try {
+            users = openUsers(config, metrics);
+            dictionary = openDictionary(config);
+            history = openHistory(config, metrics);
+            startMetrics(config, metrics);
+        } catch (IOException | JMException e) {
+            Log.error("startup_failed", e);
+            return;
         }
-        int bestScore = 99999;
 
-        ExecutorService executorService = Executors.newFixedThreadPool(15);
+        NonBlockingTimer timer = new NonBlockingTimer("typefast-timer", TIMER_TICK_MILLIS); // Deadlines of connections and matches
+        Leaderboard leaderboard = new Leaderboard(config.getRounds()); // Best game of every player
+        GameScheduler scheduler = new GameScheduler(config, dictionary, ConnectionHandler.OUTBOX, leaderboard,
+                history, timer, metrics); // Runs the games
+        Matchmaker matchmaker = new Matchmaker(config.getTeamSize(), config.getMatchRelaxMillis(),
+                config.getMatchMaxWaitMillis(), scheduler, scheduler.getExecutor(), timer, metrics); // Lobby forming the teams
+        SessionTable sessions = new SessionTable(config.getResumeWindowMillis(), timer, metrics); // Resumable sessions
+        metrics.gauge("lobby_waiting", matchmaker::getWaiting);
+        metrics.gauge("game_queued_sessions", scheduler::getQueuedSessions);
+        metrics.gauge("game_busy_threads", scheduler::getBusyThreads);
+        metrics.gauge("log_dropped_events", Log::getDropped);
+        metrics.gauge("live_matches", scheduler::getLiveMatches);
+        metrics.gauge("leaderboard_players", leaderboard::size);
+        metrics.gauge("sessions", sessions::size);
+        metrics.gauge("timer_pending", timer::getPending);
+        ServerContext context = new ServerContext(config, users, leaderboard, history, matchmaker, sessions, scheduler,
+                timer, metrics, newPasswordExecutor(config));
 
-        try (ServerSocket serverSocket = new ServerSocket(port)) {
-            System.out.println("Waiting for connections");
+        if (config.getMode() == ServerConfig.Mode.NIO) {
+            try {
+                new NioServer(config, context).run();
+            } catch (IOException e) {
+                Log.error("startup_failed", e);
+            }
+            return;
+        }
+
+        ExecutorService executorService = newConnectionExecutor(config); // Threads serving the connections
+        ExecutorService writers = newWriterExecutor(config); // Threads writing the queued responses
+
+        try (ServerSocket serverSocket = new ServerSocket(config.getPort(), 1024)) {
+            Log.info("listening", "port", config.getPort(), "mode", config.getMode());
 
             while (true) {
                 try {
                     // Create Socket
                     Socket connection = serverSocket.accept();
-                    ServerSocketTask serverTask = new ServerSocketTask(connection, usersList, scoreList, bestScore);
+                    ServerSocketTask serverTask = new ServerSocketTask(connection, context, writers);
                     executorService.submit(serverTask);
 
                 } catch (IOException e) {
-                    e.printStackTrace();
+                    Log.warn("accept_failed", e);
                 }
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.error("listen_failed", e, "port", config.getPort());
         } finally {
             // Ensure proper shutdown of the executor service
             executorService.shutdown();
+            writers.shutdown();
         }
     }
-}
 
+    /**
+     * Creates the executor running one {@link ServerSocketTask} per connection: a fixed pool of platform
+     * threads, or a new virtual thread per connection. Virtual threads are looked up reflectively so the
+     * server still builds and runs on Java versions without them.
+     *
+     * @param config the server settings
+     * @return the executor of the connections
+     */
+    private static ExecutorService newConnectionExecutor(ServerConfig config) {
+        if (config.getMode() != ServerConfig.Mode.VIRTUAL) {
+            return Executors.newFixedThreadPool(config.getPoolSize());
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, running " + Runtime.version(), e);
+        }
+    }
+
+    /**
+     * Creates the executor running the writer tasks of the blocking connections, so game threads only queue
+     * responses: a new virtual thread per task, or platform threads that are started on demand and reused, since
+     * a writer stuck on a client that stopped reading must not hold up the others.
+     *
+     * @param config the server settings
+     * @return the executor of the writer tasks
+     */
+    private static ExecutorService newWriterExecutor(ServerConfig config) {
+        if (config.getMode() == ServerConfig.Mode.VIRTUAL) {
+            return newConnectionExecutor(config);
+        }
+        AtomicInteger threads = new AtomicInteger();
+        return Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "typefast-writer-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates the executor hashing and checking the passwords of REGISTER and LOGIN, so that the key stretching
+     * never runs on a connection thread and holds up the other connections of an event loop.
+     *
+     * @param config the server settings
+     * @return the executor of the password work
+     */
+    private static ExecutorService newPasswordExecutor(ServerConfig config) {
+        AtomicInteger threads = new AtomicInteger();
+        return Executors.newFixedThreadPool(config.getPasswordThreads(), task -> {
+            Thread thread = new Thread(task, "typefast-password-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Publishes the metrics through JMX and, unless disabled, on the local metrics endpoint.
+     *
+     * @param config  the server settings
+     * @param metrics the metrics to publish
+     * @throws IOException  if the endpoint port cannot be bound
+     * @throws JMException if the metrics cannot be registered with JMX
+     */
+    private static void startMetrics(ServerConfig config, Metrics metrics) throws IOException, JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName("com.group15.typefast:type=Metrics"));
+        if (config.getMetricsPort() > 0) {
+            new MetricsEndpoint(config.getMetricsPort(), metrics);
+            Log.info("metrics_endpoint", "url", "http://localhost:" + config.getMetricsPort() + "/metrics");
+        }
+    }
+
+    /**
+     * Opens the configured dictionary, or builds one from the built-in words if none is configured.
+     *
+     * @param config the server settings
+     * @return the dictionary of the games
+     * @throws IOException if the dictionary cannot be read or compiled
+     */
+    private static WordDictionary openDictionary(ServerConfig config) throws IOException {
+        if (config.getDictionary().isEmpty()) {
+            return WordDictionary.of(GameSession.WORDS, WordDictionary.DEFAULT_TIERS);
+        }
+        long start = System.currentTimeMillis();
+        Path file = Paths.get(config.getDictionary());
+        WordDictionary dictionary = WordDictionary.open(file);
+        Log.info("dictionary_loaded", "file", file, "words", dictionary.size(), "tiers", dictionary.getTiers(),
+                "ms", System.currentTimeMillis() - start);
+        return dictionary;
+    }
+
+    /**
+     * Opens the match history in the data directory, or keeps no history if no data directory is configured.
+     *
+     * @param config  the server settings
+     * @param metrics the metrics the history reports its queue to
+     * @return the history, or null
+     * @throws IOException if the segments cannot be mapped
+     */
+    private static MatchHistory openHistory(ServerConfig config, Metrics metrics) throws IOException {
+        if (config.getDataDir().isEmpty()) {
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        MatchHistory history = new MatchHistory(Paths.get(config.getDataDir(), "history"));
+        history.load();
+        Runtime.getRuntime().addShutdownHook(new Thread(history::close)); // Commit pending matches on exit
+        metrics.gauge("history_pending_writes", history::getPendingWrites);
+        metrics.gauge("history_matches", history::size);
+        Log.info("history_loaded", "matches", history.size(), "ms", System.currentTimeMillis() - start);
+        return history;
+    }
+
+    /**
+     * Restores the registered users from the persistent store, or creates an in-memory registry
+     * if no data directory is configured.
+     *
+     * @param config  the server settings
+     * @param metrics the metrics the store reports its queue to
+     * @return the registry of registered users
+     * @throws IOException if the store cannot be read
+     */
+    private static UserRegistry openUsers(ServerConfig config, Metrics metrics) throws IOException {
+        if (config.getDataDir().isEmpty()) {
+            return new UserRegistry(config.getPasswordIterations());
+        }
+        long start = System.currentTimeMillis();
+        UserStore store = new UserStore(Paths.get(config.getDataDir()), config.getSnapshotEvery(),
+                config.getPasswordIterations());
+        UserRegistry users = store.load();
+        Runtime.getRuntime().addShutdownHook(new Thread(store::close)); // Commit pending registrations on exit
+        metrics.gauge("user_store_pending_writes", store::getPendingWrites);
+        Log.info("users_loaded", "users", users.size(), "ms", System.currentTimeMillis() - start);
+        return users;
+    }
+}
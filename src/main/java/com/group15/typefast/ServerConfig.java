@@ -0,0 +1,268 @@
+package com.group15.typefast;
+
+/**
+ * ServerConfig holds the tunable settings of the TypeFast server. Every value can be overridden
+ * with a {@code -Dtypefast.*} system property so the same jar can be run in different setups.
+ */
+public class ServerConfig {
+
+    /**
+     * How accepted connections are served.
+     */
+    public enum Mode {
+        NIO,  // Selector-based event loops, a handful of I/O threads for all connections
+        POOL, // One pooled platform thread per connection
+        VIRTUAL // One virtual thread per connection, needs Java 21
+    }
+
+    private int port = 8080; // Server port number
+    private Mode mode = Mode.NIO; // Connection execution mode
+    private int ioThreads = Math.max(1, Runtime.getRuntime().availableProcessors()); // Number of NIO event loops
+    private int poolSize = 15; // Number of threads in POOL mode
+    private String dataDir = "data"; // Directory of the persistent user store, empty to keep users in memory
+    private int snapshotEvery = 100_000; // Registrations between two user store snapshots
+    private int passwordIterations = PasswordHash.DEFAULT_ITERATIONS; // PBKDF2 rounds of the password hashes
+    private int passwordThreads = Math.max(1, Runtime.getRuntime().availableProcessors()); // Threads hashing and checking the passwords
+    private int gameThreads = Math.max(1, Runtime.getRuntime().availableProcessors()); // Threads running the game sessions
+    private int teamSize = 3; // Players per team
+    private String dictionary = ""; // Word list or compiled dictionary, empty for the built-in words
+    private int rounds = 10; // Words per game
+    private int metricsPort = 9090; // Local port of the metrics endpoint, 0 to disable it
+    private Log.Level logLevel = Log.Level.INFO; // Least severe level that is logged
+    private String logFile = ""; // Log file, empty to log to the standard output
+    private long logMaxBytes = 64L * 1024 * 1024; // Size after which the log file is rolled over
+    private int logFiles = 5; // Rolled log files kept
+    private long matchRelaxMillis = 2_000; // Lobby wait after which a player accepts teammates one more skill bucket away
+    private long matchMaxWaitMillis = 10_000; // Lobby wait after which a player accepts teammates of any skill
+    private long resumeWindowMillis = 30_000; // Time a client that lost its connection can resume its session
+    private long idleTimeoutMillis = 300_000; // Time without requests after which a connection outside a match is closed, 0 to never close it
+    private long readyTimeoutMillis = 60_000; // Time a formed team waits for its members to get ready, 0 to wait forever
+    private long roundLimitMillis = 15_000; // Time limit of the easiest words, 0 for no time limits
+    private long roundLimitHardMillis = 30_000; // Time limit of the hardest words
+
+    /**
+     * Builds a configuration from the {@code typefast.*} system properties, falling back to the defaults.
+     *
+     * @return the configuration
+     */
+    public static ServerConfig fromSystemProperties() {
+        ServerConfig config = new ServerConfig();
+        config.port = Integer.getInteger("typefast.port", config.port);
+        config.mode = Mode.valueOf(System.getProperty("typefast.mode", config.mode.name()).toUpperCase());
+        config.ioThreads = Integer.getInteger("typefast.ioThreads", config.ioThreads);
+        config.poolSize = Integer.getInteger("typefast.poolSize", config.poolSize);
+        config.dataDir = System.getProperty("typefast.dataDir", config.dataDir);
+        config.snapshotEvery = Integer.getInteger("typefast.snapshotEvery", config.snapshotEvery);
+        config.passwordIterations = Integer.getInteger("typefast.passwordIterations", config.passwordIterations);
+        config.passwordThreads = Integer.getInteger("typefast.passwordThreads", config.passwordThreads);
+        config.gameThreads = Integer.getInteger("typefast.gameThreads", config.gameThreads);
+        config.teamSize = Integer.getInteger("typefast.teamSize", config.teamSize);
+        config.dictionary = System.getProperty("typefast.dictionary", config.dictionary);
+        config.rounds = Integer.getInteger("typefast.rounds", config.rounds);
+        config.metricsPort = Integer.getInteger("typefast.metricsPort", config.metricsPort);
+        config.logLevel = Log.Level.valueOf(System.getProperty("typefast.logLevel", config.logLevel.name()).toUpperCase());
+        config.logFile = System.getProperty("typefast.logFile", config.logFile);
+        config.logMaxBytes = Long.getLong("typefast.logMaxBytes", config.logMaxBytes);
+        config.logFiles = Integer.getInteger("typefast.logFiles", config.logFiles);
+        config.matchRelaxMillis = Long.getLong("typefast.matchRelaxMs", config.matchRelaxMillis);
+        config.matchMaxWaitMillis = Long.getLong("typefast.matchMaxWaitMs", config.matchMaxWaitMillis);
+        config.resumeWindowMillis = Long.getLong("typefast.resumeWindowMs", config.resumeWindowMillis);
+        config.idleTimeoutMillis = Long.getLong("typefast.idleTimeoutMs", config.idleTimeoutMillis);
+        config.readyTimeoutMillis = Long.getLong("typefast.readyTimeoutMs", config.readyTimeoutMillis);
+        config.roundLimitMillis = Long.getLong("typefast.roundLimitMs", config.roundLimitMillis);
+        config.roundLimitHardMillis = Long.getLong("typefast.roundLimitHardMs", config.roundLimitHardMillis);
+        return config;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    public void setIoThreads(int ioThreads) {
+        this.ioThreads = ioThreads;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public String getDataDir() {
+        return dataDir;
+    }
+
+    public void setDataDir(String dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    public int getSnapshotEvery() {
+        return snapshotEvery;
+    }
+
+    public void setSnapshotEvery(int snapshotEvery) {
+        this.snapshotEvery = snapshotEvery;
+    }
+
+    public int getPasswordIterations() {
+        return passwordIterations;
+    }
+
+    public void setPasswordIterations(int passwordIterations) {
+        this.passwordIterations = passwordIterations;
+    }
+
+    public int getPasswordThreads() {
+        return passwordThreads;
+    }
+
+    public void setPasswordThreads(int passwordThreads) {
+        this.passwordThreads = passwordThreads;
+    }
+
+    public int getGameThreads() {
+        return gameThreads;
+    }
+
+    public void setGameThreads(int gameThreads) {
+        this.gameThreads = gameThreads;
+    }
+
+    public int getTeamSize() {
+        return teamSize;
+    }
+
+    public void setTeamSize(int teamSize) {
+        this.teamSize = teamSize;
+    }
+
+    public long getMatchRelaxMillis() {
+        return matchRelaxMillis;
+    }
+
+    public void setMatchRelaxMillis(long matchRelaxMillis) {
+        this.matchRelaxMillis = matchRelaxMillis;
+    }
+
+    public long getMatchMaxWaitMillis() {
+        return matchMaxWaitMillis;
+    }
+
+    public void setMatchMaxWaitMillis(long matchMaxWaitMillis) {
+        this.matchMaxWaitMillis = matchMaxWaitMillis;
+    }
+
+    public long getResumeWindowMillis() {
+        return resumeWindowMillis;
+    }
+
+    public void setResumeWindowMillis(long resumeWindowMillis) {
+        this.resumeWindowMillis = resumeWindowMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public long getReadyTimeoutMillis() {
+        return readyTimeoutMillis;
+    }
+
+    public void setReadyTimeoutMillis(long readyTimeoutMillis) {
+        this.readyTimeoutMillis = readyTimeoutMillis;
+    }
+
+    public long getRoundLimitMillis() {
+        return roundLimitMillis;
+    }
+
+    public void setRoundLimitMillis(long roundLimitMillis) {
+        this.roundLimitMillis = roundLimitMillis;
+    }
+
+    public long getRoundLimitHardMillis() {
+        return roundLimitHardMillis;
+    }
+
+    public void setRoundLimitHardMillis(long roundLimitHardMillis) {
+        this.roundLimitHardMillis = roundLimitHardMillis;
+    }
+
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public void setMetricsPort(int metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+
+    public Log.Level getLogLevel() {
+        return logLevel;
+    }
+
+    public void setLogLevel(Log.Level logLevel) {
+        this.logLevel = logLevel;
+    }
+
+    public String getLogFile() {
+        return logFile;
+    }
+
+    public void setLogFile(String logFile) {
+        this.logFile = logFile;
+    }
+
+    public long getLogMaxBytes() {
+        return logMaxBytes;
+    }
+
+    public void setLogMaxBytes(long logMaxBytes) {
+        this.logMaxBytes = logMaxBytes;
+    }
+
+    public int getLogFiles() {
+        return logFiles;
+    }
+
+    public void setLogFiles(int logFiles) {
+        this.logFiles = logFiles;
+    }
+
+    public String getDictionary() {
+        return dictionary;
+    }
+
+    public void setDictionary(String dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public int getRounds() {
+        return rounds;
+    }
+
+    public void setRounds(int rounds) {
+        this.rounds = rounds;
+    }
+}
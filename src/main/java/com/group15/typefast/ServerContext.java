@@ -0,0 +1,75 @@
+package com.group15.typefast;
+
+import java.util.concurrent.Executor;
+
+/**
+ * ServerContext bundles the server-wide services shared by every connection.
+ */
+public class ServerContext {
+
+    private final ServerConfig config; // Server settings
+    private final UserRegistry users; // Registered users
+    private final Leaderboard leaderboard; // Best game of every player
+    private final MatchHistory history; // Finished matches, null to keep no history
+    private final Matchmaker matchmaker; // Lobby forming the teams
+    private final SessionTable sessions; // Resumable sessions of the logged in users
+    private final GameScheduler scheduler; // Sessions and streams of the matches
+    private final NonBlockingTimer timer; // Deadlines of the connections and the matches
+    private final Metrics metrics; // Latencies, counters, and gauges of the server
+    private final Executor passwords; // Threads hashing and checking the passwords
+
+    public ServerContext(ServerConfig config, UserRegistry users, Leaderboard leaderboard, MatchHistory history,
+                         Matchmaker matchmaker, SessionTable sessions, GameScheduler scheduler, NonBlockingTimer timer,
+                         Metrics metrics, Executor passwords) {
+        this.config = config;
+        this.users = users;
+        this.leaderboard = leaderboard;
+        this.history = history;
+        this.matchmaker = matchmaker;
+        this.sessions = sessions;
+        this.scheduler = scheduler;
+        this.timer = timer;
+        this.metrics = metrics;
+        this.passwords = passwords;
+    }
+
+    public ServerConfig getConfig() {
+        return config;
+    }
+
+    public UserRegistry getUsers() {
+        return users;
+    }
+
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    public MatchHistory getHistory() {
+        return history;
+    }
+
+    public Matchmaker getMatchmaker() {
+        return matchmaker;
+    }
+
+    public SessionTable getSessions() {
+        return sessions;
+    }
+
+    public GameScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public NonBlockingTimer getTimer() {
+        return timer;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public Executor getPasswords() {
+        return passwords;
+    }
+}
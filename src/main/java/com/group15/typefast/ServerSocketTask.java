@@ -2,342 +2,182 @@ package com.group15.typefast;
 
 import java.io.*;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.concurrent.*;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * ServerSocketTask handles the server-side socket communication for the TypeFast game.
- * It manages user registration, login, team formation, and game sessions.
+ * ServerSocketTask serves one client connection on a dedicated thread with blocking socket I/O, either
+ * a pooled platform thread or a virtual thread.
+ * It reads request messages and hands them to a {@link ConnectionHandler}, which manages user
+ * registration, login, team formation, and game sessions. Responses never block their sender: like in
+ * {@link NioConnection}, they are queued, and a writer task of the connection drains the queue into the
+ * socket, so a client that stops reading only ever stalls its own writer and never the game threads.
  */
-public class ServerSocketTask implements Runnable {
+public class ServerSocketTask implements Runnable, Connection {
+
+    private static final long HIGH_WATERMARK = 256 * 1024; // Unsent bytes above which optional messages are skipped
+    private static final long MAX_QUEUED_BYTES = 4 * 1024 * 1024; // Unsent bytes above which the client is dropped
 
     private Socket connection; // Client socket connection
-    private final List<User> usersList; // List of registered users
-    private final List<ScoreObject> scoreList; // List of scores
-    private static final List<Team> teamList = Collections.synchronizedList(new ArrayList<>()); // Synchronized list of teams
-    private int tgc = 0; // Team generation counter
-    private String response = null; // Server response
-    private boolean startUp = true; // Flag for initial team creation
-    private static final ConcurrentHashMap<Integer, String> currentWords = new ConcurrentHashMap<>(); // Map of current words by team ID
-    private static final ConcurrentHashMap<Integer, Long> wordStartTimes = new ConcurrentHashMap<>(); // Map of word start times by team ID
-    private static final List<String> WORDS = List.of("cat", "animal", "umbrella", "acronym", "difficult", "synchronous", "appropriation", "sophisticated", "apprenticeship", "designation", "End"); // List of words for the game
-    private static final ConcurrentHashMap<Integer, Integer> teamScores = new ConcurrentHashMap<>(); // Map of team scores by team ID
+    private final ConnectionHandler handler; // State machine of this connection
+    private final Executor writers; // Runs the writer task, never the threads reading the connections
+    private volatile OutputStream out; // Stream for the responses, only written by the writer task
+    private final Metrics metrics; // Counts the open connections
+    private final AtomicBoolean closed = new AtomicBoolean(); // Set by the first close
+    private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>(); // Responses not yet written
+    private final AtomicLong queuedBytes = new AtomicLong(); // Bytes of the responses not yet written
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(); // True while a writer task is queued
+    private final ReentrantLock writeLock = new ReentrantLock(); // Held by the writer, never pins a virtual thread
 
     /**
-     * Constructor to initialize the ServerSocketTask with client socket, user list, score list, and best score.
+     * Constructor to initialize the ServerSocketTask with the client socket and the server-wide services.
      *
-     * @param s         the client socket
-     * @param usersList the list of registered users
-     * @param scoreList the list of scores
-     * @param bestScore the best score among users
+     * @param s       the client socket
+     * @param context the server-wide services
+     * @param writers the executor running the writer tasks of the connections
      */
-    public ServerSocketTask(Socket s, List<User> usersList, List<ScoreObject> scoreList, int bestScore) {
+    public ServerSocketTask(Socket s, ServerContext context, Executor writers) {
         this.connection = s;
-        this.usersList = usersList;
-        this.scoreList = scoreList;
+        this.handler = new ConnectionHandler(this, context);
+        this.metrics = context.getMetrics();
+        this.writers = writers;
     }
 
     /**
-     * The main loop that manages the server-side communication. It handles user registration, login,
-     * team formation, and game sessions based on client requests.
+     * The main loop that manages the server-side communication. It reads one message at a time
+     * and passes it to the connection handler until the client quits or disconnects.
      */
     @Override
     public void run() {
-        try (ObjectInputStream ois = new ObjectInputStream(connection.getInputStream());
-             BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(connection.getOutputStream()));
-             BufferedReader br = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-
-            System.out.println("connected");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()))) {
+            connection.setTcpNoDelay(true); // Responses to pipelined requests must not wait for delayed ACKs
+            this.out = new BufferedOutputStream(connection.getOutputStream());
+            metrics.connectionOpened();
+            Log.debug("connected", "remote", connection.getRemoteSocketAddress());
+            scheduleFlush(); // Responses queued before the stream was open
 
             while (true) {
-                // Read user and request from client
-                User receivedUser = (User) ois.readObject();
-                receivedUser.setBufferedWriter(bw); // Set the BufferedWriter for the user
-                String request = (String) ois.readObject();
-                System.out.println("Received request: " + request);
-
+                Message request = FrameIO.readMessage(in); // Read the next request from the client
                 if (request == null) break;
 
-                switch (request) {
-                    case "register":
-                        register(receivedUser); // Handle user registration
-                        response = receivedUser.getUsername() + " is Registered Successfully";
-                        sendResponse(bw, response); // Send response to client
-                        break;
-
-                    case "login":
-                        boolean verified = verify(receivedUser); // Handle user login
-                        sendResponse(bw, Boolean.toString(verified)); // Send verification result to client
-                        if (verified) {
-                            updateLoginStatus(receivedUser); // Update user login status
-                        }
-                        break;
-
-                    case "make a team":
-                        handleTeamMaking(receivedUser, bw); // Handle team formation
-                        break;
-
-                    case "start a game":
-                        handleStartGame(receivedUser, request, bw, ois); // Handle game start
-                        break;
-
-                    case "q":
-                        return; // Handle client disconnect
-
-                    default:
-                        // Handle unknown requests
-                        break;
+                if (!handler.onMessage(request)) {
+                    flush(); // Handle client disconnect, after the last responses
+                    return;
                 }
-
-                Thread.sleep(300); // Wait for 300 milliseconds between requests
             }
 
-        } catch (IOException | ClassNotFoundException | InterruptedException e) {
-            e.printStackTrace(); // Print the stack trace for the exception
+        } catch (IOException e) {
+            Log.debug("connection_failed", "remote", connection.getRemoteSocketAddress(), "error", e.getMessage());
         } finally {
-            try {
-                connection.close(); // Close the connection
-            } catch (IOException e) {
-                e.printStackTrace(); // Print the stack trace for the exception
-            }
+            close();
         }
     }
 
     /**
-     * Synchronized method to register a user by adding them to the users list.
+     * Queues a response for the writer task.
      *
-     * @param user the user to be registered
+     * @param response the response message
      */
-    private synchronized void register(User user) {
-        usersList.add(user);
+    @Override
+    public void write(Message response) {
+        writeFrame(Protocol.encode(response));
     }
 
     /**
-     * Synchronized method to verify a user's login credentials.
+     * Queues an encoded frame for the writer task, which coalesces all frames queued meanwhile into one flush.
+     * A client whose unread responses exceed {@link #MAX_QUEUED_BYTES} is disconnected instead of letting the
+     * queue grow without bound.
      *
-     * @param user the user to be verified
-     * @return true if the user's credentials are valid, false otherwise
+     * @param frame the encoded frame, possibly shared with other connections
      */
-    private synchronized boolean verify(User user) {
-        for (User u : usersList) {
-            if (u.getUsername().equalsIgnoreCase(user.getUsername()) &&
-                u.getPassword().equals(user.getPassword())) {
-                return true;
-            }
+    @Override
+    public void writeFrame(ByteBuffer frame) {
+        if (closed.get()) {
+            return; // Nobody is reading anymore
+        }
+        if (queuedBytes.addAndGet(frame.remaining()) > MAX_QUEUED_BYTES) {
+            Log.warn("slow_client_closed", null, "remote", connection.getRemoteSocketAddress(), "queued", queuedBytes.get());
+            metrics.slowClientClosed();
+            close();
+            return;
         }
-        return false;
+        outbound.add(frame);
+        scheduleFlush();
     }
 
     /**
-     * Synchronized method to update the login status of a user.
+     * Returns whether more unsent bytes are queued than the high watermark.
      *
-     * @param user the user whose login status is to be updated
+     * @return true while the client is behind reading its responses
      */
-    private synchronized void updateLoginStatus(User user) {
-        for (User u : usersList) {
-            if (u.getUsername().equals(user.getUsername())) {
-                u.setLoggedIn(true);
-            }
-        }
+    @Override
+    public boolean isBacklogged() {
+        return queuedBytes.get() > HIGH_WATERMARK;
     }
 
     /**
-     * Synchronized method to handle team formation. It assigns users to teams and sends appropriate responses.
-     *
-     * @param user the user requesting team formation
-     * @param bw   the BufferedWriter to send responses to the user
-     * @throws IOException if an I/O error occurs when sending the response
+     * Starts a writer task unless one is already queued.
      */
-    private synchronized void handleTeamMaking(User user, BufferedWriter bw) throws IOException {
-        // Initialize the teamList if this is the first time
-        if (startUp) {
-            Team firstTeam = new Team();
-            teamList.add(firstTeam);
-            startUp = false;
-        }
-
-        user.setTeamID(tgc); // Set the user's team ID
-        teamList.get(tgc).addUser(user); // Add the user to the team
-
-        if (teamList.get(tgc).isFull()) { // Check if the team is full
-            for (User teamUser : teamList.get(tgc).getTeamUsers()) {
-                teamUser.setTeamd(true); // Update the user's team status
-                sendResponse(teamUser.getBufferedWriter(), String.valueOf(tgc)); // Send team ID to the users
-            }
-            tgc += 1; // Increment the team generation counter
-            Team newTeam = new Team();
-            teamList.add(newTeam); // Add a new team to the list
-        } else {
-            sendResponse(bw, "Waiting for team members..."); // Inform the user to wait for team members
+    private void scheduleFlush() {
+        if (!outbound.isEmpty() && flushScheduled.compareAndSet(false, true)) {
+            writers.execute(this::flush);
         }
     }
 
     /**
-     * Handles the start of a game session. It waits for all team members to be ready, then starts the game.
-     *
-     * @param user    the user requesting to start the game
-     * @param request the request string
-     * @param bw      the BufferedWriter to send responses to the user
-     * @param ois     the ObjectInputStream to read user answers
-     * @throws IOException            if an I/O error occurs during communication
-     * @throws ClassNotFoundException if a class cannot be found during object deserialization
-     * @throws InterruptedException   if the thread is interrupted
+     * Writes the queued responses and flushes them to the socket. Blocks while the client does not read, but
+     * only the writer task or the connection's own thread ever call it.
      */
-    private void handleStartGame(User user, String request, BufferedWriter bw, ObjectInputStream ois) throws IOException, ClassNotFoundException, InterruptedException {
-        Team team = teamList.get(user.getTeamID());
-        user.setReady(true); // Set user as ready
-        sendResponse(bw, "Waiting for all team members to be ready...");
-
-        while (true) {
-            boolean allReady = team.getTeamUsers().stream().allMatch(User::isReady); // Check if all team members are ready
-            if (allReady) {
-                sendResponse(user.getBufferedWriter(), "Game started for team " + team.getTeamID()); // Inform the user that the game has started
-                sendNewWordToUser(user); // Send the first word to the user
-                handleAnswerSubmission(user, request, ois, bw); // Handle answer submission
-                break;
+    private void flush() {
+        writeLock.lock();
+        try {
+            flushScheduled.set(false); // Responses queued from now on start another writer task
+            OutputStream out = this.out;
+            if (out == null || closed.get()) {
+                return; // Not open yet, run starts a writer once it is; or nobody is reading anymore
+            }
+            int sent = 0;
+            ByteBuffer frame;
+            while ((frame = outbound.poll()) != null) {
+                byte[] bytes = new byte[frame.remaining()];
+                frame.duplicate().get(bytes); // Shared frames are read-only
+                out.write(bytes);
+                queuedBytes.addAndGet(-bytes.length);
+                sent++;
             }
-            Thread.sleep(300); // Wait for 300 milliseconds before checking again
+            if (sent > 0) {
+                out.flush();
+                metrics.socketWritten(sent);
+            }
+        } catch (IOException e) {
+            Log.debug("send_failed", "remote", connection.getRemoteSocketAddress(), "error", e.getMessage());
+            close(); // A broken stream cannot be used anymore
+        } finally {
+            writeLock.unlock();
         }
     }
 
     /**
-     * Sends a new word to the user for the current round.
-     *
-     * @param user the user to receive the new word
-     * @throws IOException if an I/O error occurs when sending the response
+     * Closes the client socket.
      */
-    private void sendNewWordToUser(User user) throws IOException {
-        String newWord = WORDS.get(user.getCurrentLevel() % WORDS.size()); // Get the new word for the current level
-        currentWords.put(user.getTeamID(), newWord); // Store the word in the map
-        wordStartTimes.put(user.getTeamID(), System.currentTimeMillis()); // Store the word start time in the map
-        if (newWord.equals("End")) { // Check if the word is the end marker
-            sendResponse(user.getBufferedWriter(), "Congratulations... Your team have finished the game with score of " + user.getScore() + " Points! Time =" + (teamList.get(user.getTeamID()).getTotalTime())/1000 +"seconds");
-            sendResponse(user.getBufferedWriter(), "Game Over in "+ (teamList.get(user.getTeamID()).getTotalTime())/1000 +"seconds");
-            return;
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return; // Already closed
         }
-        sendResponse(user.getBufferedWriter(), "Your Team Score: " + user.getScore() + " points!" + " New word: " + newWord); // Send the new word and team score to the user
-        user.setScore(user.getScore() + 1); // Increment the user's score
-        user.setCurrentLevel(user.getCurrentLevel() + 1); // Increment the user's level
-    }
-
-    /**
-     * Handles the submission of user answers during a game session.
-     *
-     * @param user    the user submitting the answer
-     * @param request the request string
-     * @param ois     the ObjectInputStream to read user answers
-     * @param bw      the BufferedWriter to send responses to the user
-     * @throws IOException            if an I/O error occurs during communication
-     * @throws ClassNotFoundException if a class cannot be found during object deserialization
-     * @throws InterruptedException   if the thread is interrupted
-     */
-    private void handleAnswerSubmission(User user, String request, ObjectInputStream ois, BufferedWriter bw) throws IOException, ClassNotFoundException, InterruptedException {
-        int teamID = user.getTeamID();
-        Team team = teamList.get(teamID);
-        user.setInGame(true); // Set the user's in-game status to true
-
-        while (user.inGame()) {
-            String correctWord = currentWords.get(teamID); // Get the correct word for the team
-            String answer = (String) ois.readObject(); // Read the user's answer
-
-            if (answer.equalsIgnoreCase("q")) {
-                sendResponse(bw, "You are now spectating.");
-                user.setCorrectWordCount(user.getCorrectWordCount() + 1);
-                user.setSpectator(true);
-                // Check if all players in the team have answered correctly
-                int count = user.getCorrectWordCount();
-
-                while (true) {
-                    boolean allAnswered = team.getInGameUsers().stream().allMatch(u -> u.getCorrectWordCount() == count);
-                    if (allAnswered) {
-                        user.setCorrectWordCount(user.getCorrectWordCount() + 1);
-                        long responseTime = System.currentTimeMillis() - wordStartTimes.get(user.getTeamID()); // Calculate the response time
-                        team.setTotalTime(team.getTotalTime()+responseTime);
-                        Thread.sleep(500);
-                        sendResponse(bw, "All your team answered! You got 1 point");
-                        Thread.sleep(500);
-                        sendNewWordToUser(user); // Send a new word for the next round
-                        Thread.sleep(500);
-                        handleSpectate(user, bw, ois); // Handle spectating
-                        return;
-                    }
-                }
-            } else if (answer.equalsIgnoreCase(correctWord)) {
-                user.setCorrectWordCount(user.getCorrectWordCount() + 1); // Increment the user's correct word count
-                long responseTime = System.currentTimeMillis() - wordStartTimes.get(user.getTeamID()); // Calculate the response time
-                user.setLastResponseTime(responseTime); // Set the user's last response time
-                sendResponse(bw, "Correct! Time: " + responseTime + "ms"); // Inform the user that their answer is correct
-
-                // Check if all players in the team have answered correctly
-                int count = user.getCorrectWordCount();
-
-                while (true) {
-                    boolean allAnswered = team.getInGameUsers().stream().allMatch(u -> u.getCorrectWordCount() == count);
-                    if (allAnswered) {
-                        sendResponse(bw, "All your team answered! You got 1 point");
-                        sendNewWordToUser(user); // Send a new word for the next round
-                        request = "next round";
-                        System.out.println("user: " + user.getUsername() + " got the right word");
-                        break;
-                    }
-                }
-            } else {
-                sendResponse(bw, "Incorrect. Try again."); // Inform the user that their answer is incorrect
-                request = "wrong answer";
-            }
+        if (out != null) {
+            metrics.connectionClosed(); // Only connections that were counted as opened
         }
-    }
-
-    /**
-     * Handles spectating for users who choose to spectate during the game.
-     *
-     * @param user the user spectating
-     * @param bw   the BufferedWriter to send responses to the user
-     * @param ois  the ObjectInputStream to read user answers
-     * @throws IOException            if an I/O error occurs during communication
-     * @throws ClassNotFoundException if a class cannot be found during object deserialization
-     * @throws InterruptedException   if the thread is interrupted
-     */
-    private void handleSpectate(User user, BufferedWriter bw, ObjectInputStream ois) throws IOException, ClassNotFoundException, InterruptedException {
-        int teamID = user.getTeamID();
-        Team team = teamList.get(teamID);
-        while (user.isSpectator()) {
-            // Send notification updates to the spectator
-            System.out.println("I made it at the server");
-            int count = user.getCorrectWordCount();
-            while (true) {
-                boolean allAnswered = team.getTeamUsers().stream().allMatch(u -> u.getCorrectWordCount() == count);
-                if (allAnswered) {
-                    System.out.println("user: " + user.getUsername() + " made it to handle spectate");
-                    user.setCorrectWordCount(user.getCorrectWordCount() + 1);
-                    sendResponse(bw, "All your team answered! You got 1 point");
-                    sendNewWordToUser(user); // Send a new word for the next round
-                    Thread.sleep(300);
-                    break;
-                }
-            }
+        handler.onClosed();
+        try {
+            connection.close(); // Close the connection
+        } catch (IOException e) {
+            Log.warn("close_failed", e);
         }
     }
-
-    /**
-     * Synchronized method to update the score of a team.
-     *
-     * @param teamID       the ID of the team
-     * @param responseTime the response time of the team
-     */
-
-    /**
-     * Sends a response to the client.
-     *
-     * @param bw       the BufferedWriter to send the response
-     * @param response the response string
-     * @throws IOException if an I/O error occurs when sending the response
-     */
-    private void sendResponse(BufferedWriter bw, String response) throws IOException {
-        bw.write(response);
-        bw.write("\n");
-        bw.flush();
-    }
 }
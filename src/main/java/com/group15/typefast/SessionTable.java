@@ -0,0 +1,107 @@
+package com.group15.typefast;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SessionTable maps the tokens issued at login to the handlers of the logged in users, so a client that lost
+ * its connection can resume its {@link ClientSession} on a new one. Tokens are random and unguessable. Every
+ * detached session gets a deadline on the {@link NonBlockingTimer}; a session still detached at its deadline
+ * expires, and the player gives up the game they were in, so the teammates are not left waiting.
+ */
+public class SessionTable {
+
+    private static final int TOKEN_BYTES = 16; // Random bytes per token
+
+    private final SecureRandom random = new SecureRandom(); // Source of the tokens
+    private final Map<String, ConnectionHandler> sessions = new ConcurrentHashMap<>(); // Resumable sessions by token
+    private final long windowNanos; // Time a detached session can be resumed
+    private final NonBlockingTimer timer; // Deadlines of the detached sessions
+    private final Metrics metrics; // Receiver of the expired sessions
+
+    /**
+     * Creates an empty table.
+     *
+     * @param resumeWindowMillis the time a detached session can be resumed
+     * @param timer              the timer expiring the detached sessions
+     * @param metrics            the receiver of the expired sessions
+     */
+    public SessionTable(long resumeWindowMillis, NonBlockingTimer timer, Metrics metrics) {
+        if (resumeWindowMillis < 0) {
+            throw new IllegalArgumentException("Resume window must not be negative: " + resumeWindowMillis);
+        }
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(resumeWindowMillis);
+        this.timer = timer;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Issues a token for a logged in handler.
+     *
+     * @param handler the handler of the logged in user
+     * @return the new token
+     */
+    public String open(ConnectionHandler handler) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, handler);
+        return token;
+    }
+
+    /**
+     * Looks up the handler a token was issued for.
+     *
+     * @param token the token sent by the client
+     * @return the handler, or null if the token is unknown or expired
+     */
+    public ConnectionHandler get(String token) {
+        return token == null ? null : sessions.get(token);
+    }
+
+    /**
+     * Forgets a token, so it can no longer be resumed.
+     *
+     * @param token   the token
+     * @param handler the handler it was issued for
+     */
+    public void remove(String token, ConnectionHandler handler) {
+        if (token != null) {
+            sessions.remove(token, handler);
+        }
+    }
+
+    /**
+     * Starts the resume window of a session that just lost its transport. If the session is detached again
+     * after a resume, the earlier deadline finds it too recent and leaves it to the new one.
+     *
+     * @param handler the handler of the detached session
+     */
+    public void detached(ConnectionHandler handler) {
+        timer.schedule(() -> expire(handler), windowNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of resumable sessions, attached or not.
+     *
+     * @return the session count
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Expires a session if it is still detached and its resume window is over.
+     */
+    private void expire(ConnectionHandler handler) {
+        ClientSession session = handler.getSession();
+        if (session.expireIfIdle(System.nanoTime(), windowNanos)) {
+            sessions.remove(session.getToken(), handler);
+            metrics.sessionExpired();
+            handler.onExpired();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.group15.typefast;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SplitTimes records the timing of every player in every round of one match: how long after the word was sent
+ * the player submitted a first answer and the correct one, and how many answers it took. Times are
+ * {@link System#nanoTime} differences, so they neither jump with clock adjustments nor lose precision, and
+ * they are kept in flat primitive arrays indexed by {@code round * players + player}, so recording an answer
+ * allocates nothing. It is only used by the match's {@link GameSession}.
+ */
+public class SplitTimes {
+
+    private static final long NONE = -1; // Split of a player that did not submit
+
+    private final int players; // Members of the team
+    private final int rounds; // Words of the match
+    private final long[] roundNanos; // Duration of every round
+    private final long[] firstNanos; // Time to the first answer of a player in a round
+    private final long[] correctNanos; // Time to the correct answer of a player in a round
+    private final int[] trials; // Answers submitted by a player in a round
+    private int completed; // Rounds finished
+
+    /**
+     * Creates the splits of a match.
+     *
+     * @param players the number of players
+     * @param rounds  the number of rounds
+     */
+    public SplitTimes(int players, int rounds) {
+        this.players = players;
+        this.rounds = rounds;
+        this.roundNanos = new long[rounds];
+        this.firstNanos = new long[players * rounds];
+        this.correctNanos = new long[players * rounds];
+        this.trials = new int[players * rounds];
+        Arrays.fill(firstNanos, NONE);
+        Arrays.fill(correctNanos, NONE);
+    }
+
+    /**
+     * Records an answer.
+     *
+     * @param player  the index of the player in the team
+     * @param round   the round
+     * @param nanos   the time since the word was sent
+     * @param correct whether the answer was correct
+     */
+    public void answered(int player, int round, long nanos, boolean correct) {
+        int i = round * players + player;
+        trials[i]++;
+        if (firstNanos[i] == NONE) {
+            firstNanos[i] = nanos;
+        }
+        if (correct) {
+            correctNanos[i] = nanos;
+        }
+    }
+
+    /**
+     * Records the end of a round.
+     *
+     * @param round the round
+     * @param nanos the time from the word to the last arrival
+     */
+    public void roundCompleted(int round, long nanos) {
+        roundNanos[round] = nanos;
+        completed = round + 1;
+    }
+
+    public int getPlayers() {
+        return players;
+    }
+
+    public int getRounds() {
+        return rounds;
+    }
+
+    public int getCompleted() {
+        return completed;
+    }
+
+    public long getRoundNanos(int round) {
+        return roundNanos[round];
+    }
+
+    /**
+     * Returns the time to the first answer of a player in a round.
+     *
+     * @return the time in nanoseconds, -1 if the player did not answer
+     */
+    public long getFirstNanos(int round, int player) {
+        return firstNanos[round * players + player];
+    }
+
+    /**
+     * Returns the time to the correct answer of a player in a round.
+     *
+     * @return the time in nanoseconds, -1 if the player did not answer correctly
+     */
+    public long getCorrectNanos(int round, int player) {
+        return correctNanos[round * players + player];
+    }
+
+    public int getTrials(int round, int player) {
+        return trials[round * players + player];
+    }
+
+    /**
+     * Returns the number of words a player typed correctly.
+     *
+     * @param player the index of the player in the team
+     * @return the word count
+     */
+    public int getWords(int player) {
+        int words = 0;
+        for (int round = 0; round < completed; round++) {
+            if (correctNanos[round * players + player] != NONE) {
+                words++;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Returns the time a player took to type the words they typed correctly.
+     *
+     * @param player the index of the player in the team
+     * @return the time in nanoseconds, summed over the correct words
+     */
+    public long getTypingNanos(int player) {
+        long total = 0;
+        for (int round = 0; round < completed; round++) {
+            long nanos = correctNanos[round * players + player];
+            if (nanos != NONE) {
+                total += nanos;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the time played, summed over the finished rounds.
+     *
+     * @return the total time in nanoseconds
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (int round = 0; round < completed; round++) {
+            total += roundNanos[round];
+        }
+        return total;
+    }
+
+    /**
+     * Summarizes the match, one {@code name:words/trials/mean/best} entry per player, with the mean and best
+     * times to a correct answer in milliseconds.
+     *
+     * @param users the players, in team order
+     * @return the summary
+     */
+    public String summarize(List<User> users) {
+        StringBuilder summary = new StringBuilder(32 * players);
+        for (int player = 0; player < players; player++) {
+            int words = 0;
+            int submitted = 0;
+            long sum = 0;
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < completed; round++) {
+                int i = round * players + player;
+                submitted += trials[i];
+                if (correctNanos[i] != NONE) {
+                    words++;
+                    sum += correctNanos[i];
+                    best = Math.min(best, correctNanos[i]);
+                }
+            }
+            if (player > 0) {
+                summary.append(',');
+            }
+            summary.append(users.get(player).getUsername()).append(':').append(words).append('/').append(submitted)
+                    .append('/').append(words == 0 ? "0" : String.format("%.1f", sum / 1e6 / words))
+                    .append('/').append(words == 0 ? "0" : String.format("%.1f", best / 1e6));
+        }
+        return summary.toString();
+    }
+}
@@ -2,25 +2,46 @@ package com.group15.typefast;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.List;
 
 public class Team implements Serializable {
 
     private int teamID;
     private int teamScore;
     private ArrayList<User> teamMates;
+    private int capacity = 3; // Number of players needed to start a game
     private long totalTime;
+    private transient GameSession session; // Game engine of the team, created once the team is full
+    private transient RoundState roundState; // Words of the team's game and progress through them
 
     // Constructor to initialize the teamMates list
     public Team() {
         this.teamMates = new ArrayList<>();
     }
 
+    // Constructor for a team formed with all its members at once
+    public Team(int teamID, List<User> members) {
+        this.teamID = teamID;
+        this.teamMates = new ArrayList<>(members);
+        this.capacity = members.size();
+    }
+
     public void addUser(User user) {
         teamMates.add(user);
     }
 
+    /**
+     * Sends the same message to every member of the team, letting the outbox encode it only once.
+     *
+     * @param message the message
+     * @param outbox  the outbox delivering it
+     */
+    public void broadcast(Message message, GameSession.Outbox outbox) {
+        outbox.broadcast(teamMates, message);
+    }
+
     public boolean isFull() {
-        return teamMates.size() == 3;
+        return teamMates.size() >= capacity;
     }
 
     public ArrayList<User> getTeamUsers() {
@@ -68,4 +89,20 @@ public class Team implements Serializable {
     public void setTotalTime(long totalTime) {
         this.totalTime = totalTime;
     }
+
+    public GameSession getSession() {
+        return session;
+    }
+
+    public void setSession(GameSession session) {
+        this.session = session;
+    }
+
+    public RoundState getRoundState() {
+        return roundState;
+    }
+
+    public void setRoundState(RoundState roundState) {
+        this.roundState = roundState;
+    }
 }
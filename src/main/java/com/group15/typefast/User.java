@@ -1,23 +1,27 @@
 package com.group15.typefast;
 
-import java.io.BufferedWriter;
 import java.io.Serializable;
 
 public class User implements Serializable {
+    private static final double RATING_WEIGHT = 0.2; // Weight of the latest word in the rolling typing speed
+
     private String username;
     private String password;
-    private boolean isLoggedIn;
-    private boolean isTeamd;
-    private boolean isReady;
-    private boolean isSpectator;
-    boolean inGame;
+    private String passwordHash; // Salted hash kept by the server instead of the password
+    private volatile boolean isLoggedIn; // Flags written by the game session and the registry, read by the connection threads
+    private volatile boolean isTeamd;
+    private volatile boolean isReady;
+    private volatile boolean isSpectator;
+    volatile boolean inGame;
     private int teamID;
     private int score = 0;
     private long lastResponseTime;
     private int correctWordCount;
     private int currentLevel = 0;
     private int currentTrials = 1;
-    private transient BufferedWriter writer; // Transient because BufferedWriter is not serializable
+    private volatile double rating; // Rolling typing speed in milliseconds per character, 0 until the first correct word
+    private transient ConnectionHandler handler; // Transient because the server-side handler is not serializable
+    private transient volatile Team team; // Team the user currently plays in, set by the matchmaker as the team forms
 
     public User() {}
 
@@ -43,6 +47,14 @@ public class User implements Serializable {
         this.password = password;
     }
 
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
+    public void setPasswordHash(String passwordHash) {
+        this.passwordHash = passwordHash;
+    }
+
     public boolean isLoggedIn() {
         return isLoggedIn;
     }
@@ -107,12 +119,20 @@ public class User implements Serializable {
         this.correctWordCount = correctWordCount;
     }
 
-    public BufferedWriter getBufferedWriter() {
-        return writer;
+    public Team getTeam() {
+        return team;
     }
 
-    public void setBufferedWriter(BufferedWriter writer) {
-        this.writer = writer;
+    public void setTeam(Team team) {
+        this.team = team;
+    }
+
+    public ConnectionHandler getHandler() {
+        return handler;
+    }
+
+    public void setHandler(ConnectionHandler handler) {
+        this.handler = handler;
     }
 
     public void setInGame(boolean inGame) {
@@ -143,12 +163,24 @@ public class User implements Serializable {
         this.currentTrials = currentTrials;
     }
 
-    public BufferedWriter getWriter() {
-        return writer;
+    public double getRating() {
+        return rating;
+    }
+
+    public void setRating(double rating) {
+        this.rating = rating;
     }
 
-    public void setWriter(BufferedWriter writer) {
-        this.writer = writer;
+    /**
+     * Folds a correct answer into the rolling typing speed. Recent words weigh more than old ones, so the
+     * rating follows a player who gets faster without being thrown off by a single slow word.
+     *
+     * @param responseTime the time taken to type the word, in milliseconds
+     * @param length       the length of the word
+     */
+    public void recordAnswer(long responseTime, int length) {
+        double speed = (double) responseTime / Math.max(1, length);
+        rating = rating == 0 ? speed : rating + RATING_WEIGHT * (speed - rating);
     }
 
     public void resetTrials(){
@@ -156,11 +188,13 @@ public class User implements Serializable {
     }
     
     public void gameOver(){
+        this.setScore(0); // The score counts the words of one game only
         this.setCorrectWordCount(0);
         this.setCurrentLevel(0);
         this.setInGame(false);
         this.setSpectator(false);
         this.setReady(false);
         this.setTeamd(false);
+        this.setTeam(null);
     }
 }
@@ -0,0 +1,149 @@
+package com.group15.typefast;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * UserRegistry holds every registered account, indexed by the case-insensitive username.
+ * Registration, verification, and login are single hash lookups that are safe to call from any
+ * connection thread; the map also publishes each registered {@link User} safely to other threads.
+ * When backed by a {@link UserStore}, a registration only succeeds once it has been written to disk. Only a
+ * salted {@link PasswordHash} of every password is kept.
+ */
+public class UserRegistry {
+
+    private final ConcurrentHashMap<String, User> users; // Users by lower-cased username
+    private final UserStore store; // Persistence of new accounts, null to keep them in memory only
+    private final int hashIterations; // PBKDF2 rounds of the password hashes of new accounts
+
+    /**
+     * Creates an in-memory registry.
+     */
+    public UserRegistry() {
+        this(PasswordHash.DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * Creates an in-memory registry hashing the passwords with a given cost.
+     *
+     * @param hashIterations the PBKDF2 rounds of the password hashes
+     */
+    public UserRegistry(int hashIterations) {
+        this(null, 16, hashIterations);
+    }
+
+    /**
+     * Creates a registry persisting new accounts to a store.
+     *
+     * @param store          the store new accounts are appended to, or null
+     * @param expectedUsers  the number of accounts the registry is sized for
+     * @param hashIterations the PBKDF2 rounds of the password hashes of new accounts
+     */
+    UserRegistry(UserStore store, int expectedUsers, int hashIterations) {
+        this.store = store;
+        this.users = new ConcurrentHashMap<>(Math.max(16, expectedUsers));
+        this.hashIterations = hashIterations;
+    }
+
+    /**
+     * Registers a new account unless the username is empty or already taken, ignoring case. The password of
+     * the user is replaced by its hash.
+     *
+     * @param user the user to register
+     * @return a future completed with true once the user is registered, or with false if the username
+     *         is invalid or taken, or the account could not be persisted
+     */
+    public CompletableFuture<Boolean> register(User user) {
+        if (user.getUsername() == null || user.getUsername().trim().isEmpty() || user.getPassword() == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        String key = key(user.getUsername());
+        if (users.containsKey(key)) {
+            return CompletableFuture.completedFuture(false); // Taken names cost no hash
+        }
+        user.setPasswordHash(PasswordHash.hash(user.getPassword(), hashIterations));
+        user.setPassword(null);
+        if (users.putIfAbsent(key, user) != null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (store == null) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return store.append(user).handle((done, error) -> {
+            if (error != null) {
+                users.remove(key, user); // Never keep an account that would be lost on restart
+                return false;
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Adds an account read back from the store, without persisting it again.
+     *
+     * @param user the restored user
+     */
+    void restore(User user) {
+        users.putIfAbsent(key(user.getUsername()), user);
+    }
+
+    /**
+     * Checks a username and password against the registered accounts.
+     *
+     * @param username the username, in any case
+     * @param password the password
+     * @return the registered user, or null if the credentials are invalid
+     */
+    public User verify(String username, String password) {
+        if (username == null || password == null) {
+            return null;
+        }
+        User user = users.get(key(username));
+        return user != null && PasswordHash.matches(password, user.getPasswordHash()) ? user : null;
+    }
+
+    /**
+     * Verifies the credentials and marks the registered user as logged in.
+     *
+     * @param username the username, in any case
+     * @param password the password
+     * @return the registered user, or null if the credentials are invalid
+     */
+    public User login(String username, String password) {
+        User user = verify(username, password);
+        if (user != null) {
+            user.setLoggedIn(true);
+        }
+        return user;
+    }
+
+    /**
+     * Looks up a registered user.
+     *
+     * @param username the username, in any case
+     * @return the user, or null if no such user is registered
+     */
+    public User find(String username) {
+        return username == null ? null : users.get(key(username));
+    }
+
+    /**
+     * Returns a live, unmodifiable view of the registered users.
+     *
+     * @return the registered users
+     */
+    public Collection<User> getUsers() {
+        return Collections.unmodifiableCollection(users.values());
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,416 @@
+package com.group15.typefast;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * UserStore makes registered accounts survive restarts. New accounts are appended to a write-ahead log
+ * by a single writer thread that commits whole batches with one fsync, so many concurrent registrations
+ * share the cost of a disk flush. Every few registrations the writer compacts the log into a snapshot
+ * of all accounts. On startup the snapshot is memory-mapped and the log is replayed on top of it; a torn
+ * record at the end of the log, left by a crash during a write, is detected by its checksum and dropped.
+ * Snapshots only hold accounts whose log record was committed, so a registration that fails to commit never
+ * becomes durable.
+ *
+ * <p>Log records are {@code [int length][int crc32][payload]}. The snapshot is
+ * {@code [int magic][int version][int count][payload...][int crc32]}. A payload is the username and the
+ * {@link PasswordHash}, each as an unsigned 2-byte length followed by UTF-8 bytes. Plain passwords written by
+ * older versions are hashed on load, and the files are rewritten without them.
+ */
+public class UserStore implements Closeable {
+
+    private static final int SNAPSHOT_MAGIC = 0x54465553; // "TFUS"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER_SIZE = 12; // Magic, version, and count
+    private static final int LOG_HEADER_SIZE = 8; // Length and checksum of a log record
+    private static final int MAX_BATCH = 4096; // Most registrations committed by one fsync
+    private static final int WRITE_BUFFER_SIZE = 1 << 20; // Chunk size used when writing a snapshot
+
+    private final Path dir; // Directory holding the files
+    private final Path snapshotPath; // Compacted accounts
+    private final Path logPath; // Accounts registered since the snapshot
+    private final int snapshotEvery; // Registrations between two snapshots
+    private final int hashIterations; // PBKDF2 rounds of the password hashes
+    private final FileChannel log; // Open write-ahead log
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>(); // Registrations waiting for the writer
+    private final List<User> durable = new ArrayList<>(); // Accounts on disk, only used by the writer thread after load
+    private UserRegistry registry; // Registry restored by load, persisting new accounts here
+    private Thread writer; // Group commit thread
+    private int sinceSnapshot = 0; // Registrations logged since the last snapshot
+    private int rehashed; // Plain passwords hashed on load
+    private volatile boolean closed = false;
+
+    /**
+     * A registration waiting to be made durable.
+     */
+    private static final class PendingWrite {
+        final User user;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        PendingWrite(User user) {
+            this.user = user;
+        }
+    }
+
+    /**
+     * Opens the store in a directory, creating the directory and the log if needed.
+     *
+     * @param dir           the directory holding the store files
+     * @param snapshotEvery the number of registrations after which the log is compacted
+     * @throws IOException if the log cannot be opened
+     */
+    public UserStore(Path dir, int snapshotEvery) throws IOException {
+        this(dir, snapshotEvery, PasswordHash.DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * Opens the store in a directory, creating the directory and the log if needed.
+     *
+     * @param dir            the directory holding the store files
+     * @param snapshotEvery  the number of registrations after which the log is compacted
+     * @param hashIterations the PBKDF2 rounds of the password hashes of new accounts
+     * @throws IOException if the log cannot be opened
+     */
+    public UserStore(Path dir, int snapshotEvery, int hashIterations) throws IOException {
+        Files.createDirectories(dir);
+        this.dir = dir;
+        this.snapshotPath = dir.resolve("users.snapshot");
+        this.logPath = dir.resolve("users.log");
+        this.snapshotEvery = snapshotEvery;
+        this.hashIterations = hashIterations;
+        this.log = FileChannel.open(logPath, CREATE, READ, WRITE);
+    }
+
+    /**
+     * Restores all accounts from the snapshot and the log and starts the writer thread.
+     *
+     * @return a registry holding the restored accounts, persisting new ones to this store
+     * @throws IOException if the snapshot is corrupt or the files cannot be read
+     */
+    public synchronized UserRegistry load() throws IOException {
+        if (registry != null) {
+            throw new IllegalStateException("User store already loaded");
+        }
+        UserRegistry restored = null;
+        if (Files.exists(snapshotPath)) {
+            try (FileChannel channel = FileChannel.open(snapshotPath, READ)) {
+                MappedByteBuffer snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                restored = readSnapshot(snapshot);
+            }
+        }
+        if (restored == null) {
+            restored = new UserRegistry(this, 16, hashIterations);
+        }
+
+        long valid = replayLog(restored);
+        if (valid < log.size()) {
+            log.truncate(valid); // Drop the torn record of an interrupted write
+            log.force(true);
+        }
+        log.position(valid);
+
+        registry = restored;
+        if (rehashed > 0) {
+            snapshot(); // Leave no plain password on disk
+            Log.info("user_passwords_hashed", "users", rehashed);
+        }
+        writer = new Thread(this::writeLoop, "typefast-user-store");
+        writer.setDaemon(true);
+        writer.start();
+        return restored;
+    }
+
+    /**
+     * Queues a new account for the log.
+     *
+     * @param user the registered user
+     * @return a future completed once the account is on disk
+     */
+    public CompletableFuture<Void> append(User user) {
+        PendingWrite write = new PendingWrite(user);
+        if (closed) {
+            write.done.completeExceptionally(new IOException("User store is closed"));
+            return write.done;
+        }
+        queue.add(write);
+        return write.done;
+    }
+
+    /**
+     * Returns the number of registrations waiting for the writer.
+     *
+     * @return the queued registration count
+     */
+    public int getPendingWrites() {
+        return queue.size();
+    }
+
+    /**
+     * Commits the queued registrations, writes a final snapshot, and closes the log.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            if (writer != null) {
+                writer.join(); // The writer drains the queue before it exits
+            }
+            if (registry != null) {
+                snapshot();
+            }
+            log.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            Log.error("user_store_close_failed", e);
+        }
+    }
+
+    /**
+     * Collects registrations into batches and commits each batch with one write and one fsync.
+     */
+    private void writeLoop() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1); // Everything that arrived during the last fsync
+            } catch (InterruptedException e) {
+                continue;
+            }
+
+            commit(batch);
+            batch.clear();
+
+            if (sinceSnapshot >= snapshotEvery) {
+                try {
+                    snapshot();
+                } catch (IOException e) {
+                    Log.error("user_snapshot_failed", e); // The log still holds every account, retry after the next batch
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends a batch of records to the log and makes them durable.
+     *
+     * @param batch the registrations to commit
+     */
+    private void commit(List<PendingWrite> batch) {
+        long start = -1;
+        try {
+            start = log.position();
+            ByteBuffer buffer = ByteBuffer.allocate(batch.stream().mapToInt(w -> LOG_HEADER_SIZE + payloadSize(w.user)).sum());
+            CRC32 crc = new CRC32();
+            for (PendingWrite write : batch) {
+                int length = payloadSize(write.user);
+                int payloadStart = buffer.position() + LOG_HEADER_SIZE;
+                buffer.putInt(length);
+                buffer.putInt(0); // Checksum placeholder
+                putPayload(buffer, write.user);
+                crc.reset();
+                crc.update(buffer.array(), payloadStart, length);
+                buffer.putInt(payloadStart - 4, (int) crc.getValue());
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                log.write(buffer);
+            }
+            log.force(false);
+            sinceSnapshot += batch.size();
+            for (PendingWrite write : batch) {
+                durable.add(write.user);
+                write.done.complete(null);
+            }
+        } catch (IOException e) {
+            try {
+                if (start >= 0) {
+                    log.truncate(start); // Never leave a partial batch in front of later records
+                    log.position(start);
+                }
+            } catch (IOException ignored) {
+                // The checksums will reject the partial batch on the next startup
+            }
+            for (PendingWrite write : batch) {
+                write.done.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Writes all committed accounts to a new snapshot, atomically replaces the old one, and empties the log.
+     * Runs on the writer thread, or after it stopped, so no log record can be written in between. Accounts
+     * still waiting for their commit are not among the durable ones yet, and stay out.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    private void snapshot() throws IOException {
+        Path tmp = dir.resolve("users.snapshot.tmp");
+        CRC32 crc = new CRC32();
+        int count = 0;
+        try (FileChannel out = FileChannel.open(tmp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(0); // Count is patched below
+            int bodyStart = buffer.position();
+            for (User user : durable) {
+                if (buffer.remaining() < payloadSize(user) + 4) { // Keep room for the trailing checksum
+                    crc.update(buffer.array(), bodyStart, buffer.position() - bodyStart);
+                    writeFully(out, buffer);
+                    bodyStart = 0;
+                }
+                putPayload(buffer, user);
+                count++;
+            }
+            crc.update(buffer.array(), bodyStart, buffer.position() - bodyStart);
+            buffer.putInt((int) crc.getValue());
+            writeFully(out, buffer);
+            out.write(ByteBuffer.allocate(4).putInt(0, count), 8);
+            out.force(true);
+        }
+        Files.move(tmp, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel directory = FileChannel.open(dir, READ)) {
+            directory.force(true); // Persist the rename before the log is emptied
+        } catch (IOException e) {
+            // Not every platform can sync a directory
+        }
+        log.truncate(0);
+        log.position(0);
+        log.force(true);
+        sinceSnapshot = 0;
+    }
+
+    /**
+     * Parses a mapped snapshot into a registry sized for its accounts.
+     */
+    private UserRegistry readSnapshot(ByteBuffer snapshot) throws IOException {
+        if (snapshot.remaining() < SNAPSHOT_HEADER_SIZE + 4 || snapshot.getInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a user snapshot: " + snapshotPath);
+        }
+        if (snapshot.getInt() != SNAPSHOT_VERSION) {
+            throw new IOException("Unsupported user snapshot version: " + snapshotPath);
+        }
+        int count = snapshot.getInt();
+
+        ByteBuffer body = snapshot.slice().limit(snapshot.remaining() - 4);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != snapshot.getInt(snapshot.limit() - 4)) {
+            throw new IOException("Corrupt user snapshot: " + snapshotPath);
+        }
+
+        UserRegistry restored = new UserRegistry(this, count, hashIterations);
+        for (int i = 0; i < count; i++) {
+            restore(restored, readPayload(body));
+        }
+        return restored;
+    }
+
+    /**
+     * Replays the log into a registry.
+     *
+     * @return the length of the valid prefix of the log
+     */
+    private long replayLog(UserRegistry restored) throws IOException {
+        long size = log.size();
+        if (size == 0) {
+            return 0;
+        }
+        MappedByteBuffer records = log.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        CRC32 crc = new CRC32();
+        while (records.remaining() >= LOG_HEADER_SIZE) {
+            int start = records.position();
+            int length = records.getInt();
+            int checksum = records.getInt();
+            if (length <= 0 || length > records.remaining()) {
+                return start; // Torn record
+            }
+            ByteBuffer payload = records.slice().limit(length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                return start; // Partially written record
+            }
+            restore(restored, readPayload(payload));
+            records.position(start + LOG_HEADER_SIZE + length);
+        }
+        return records.position();
+    }
+
+    /**
+     * Adds a user read back from the files to the registry and to the durable accounts.
+     */
+    private void restore(UserRegistry restored, User user) {
+        restored.restore(user);
+        durable.add(user);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static int payloadSize(User user) {
+        return 4 + utf8Length(user.getUsername()) + utf8Length(user.getPasswordHash());
+    }
+
+    private static int utf8Length(String s) {
+        return s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void putPayload(ByteBuffer buffer, User user) {
+        putString(buffer, user.getUsername());
+        putString(buffer, user.getPasswordHash());
+    }
+
+    private static void putString(ByteBuffer buffer, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Reads an account, hashing the password if an older version stored it in plain text.
+     */
+    private User readPayload(ByteBuffer buffer) {
+        String username = getString(buffer);
+        String secret = getString(buffer);
+        User user = new User(username, null);
+        if (PasswordHash.isHash(secret)) {
+            user.setPasswordHash(secret);
+        } else {
+            user.setPasswordHash(PasswordHash.hash(secret, hashIterations));
+            rehashed++;
+        }
+        return user;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
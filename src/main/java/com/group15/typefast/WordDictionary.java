@@ -0,0 +1,294 @@
+package com.group15.typefast;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * WordDictionary holds the words of the game in one packed, read-only image ordered by difficulty. A word's
+ * difficulty is the information carried by its letters: every letter counts {@code -log2} of its frequency
+ * in the whole list, so long words and words with rare letters are harder. The words are split into tiers
+ * of equal size, from the easiest to the hardest, and a random word of a tier is picked without any allocation.
+ *
+ * <p>A word list is a text file with one word per line. It is compiled once into a {@code .dict} file next to
+ * it, which is then memory-mapped, so startup does not parse the list again and several servers on the same
+ * machine share the pages of one image. The image is
+ * {@code [int magic][int version][int count][int tiers][int tierStart...][int offset...][UTF-8 bytes]}:
+ * tier {@code t} holds the words {@code tierStart[t]} to {@code tierStart[t + 1] - 1}, and word {@code i} spans the
+ * bytes {@code offset[i]} to {@code offset[i + 1] - 1} after the offsets.
+ */
+public class WordDictionary {
+
+    static final int DEFAULT_TIERS = 5; // Tiers of a compiled word list
+    private static final int MAGIC = 0x54464443; // "TFDC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16; // Magic, version, count, and tiers
+    private static final int MAX_WORD_SIZE = 64; // Longest word kept, in bytes
+    private static final String COMPILED_SUFFIX = ".dict";
+
+    private final ByteBuffer image; // Packed dictionary, only read with absolute gets
+    private final int count; // Number of words
+    private final int[] tierStarts; // Index of the first word of every tier, and the word count
+    private final int offsetsStart; // Position of the word offsets in the image
+    private final int wordsStart; // Position of the word bytes in the image
+
+    /**
+     * Wraps a packed image.
+     *
+     * @param image the image, from its magic up to its limit
+     * @throws IOException if the image is not a dictionary
+     */
+    private WordDictionary(ByteBuffer image) throws IOException {
+        if (image.remaining() < HEADER_SIZE || image.getInt(0) != MAGIC) {
+            throw new IOException("Not a dictionary image");
+        }
+        if (image.getInt(4) != VERSION) {
+            throw new IOException("Unsupported dictionary version " + image.getInt(4));
+        }
+        this.image = image;
+        this.count = image.getInt(8);
+        int tiers = image.getInt(12);
+        if (count <= 0 || tiers <= 0 || tiers > count) {
+            throw new IOException("Empty or corrupt dictionary");
+        }
+        this.tierStarts = new int[tiers + 1];
+        for (int t = 0; t <= tiers; t++) {
+            tierStarts[t] = image.getInt(HEADER_SIZE + 4 * t);
+        }
+        this.offsetsStart = HEADER_SIZE + 4 * (tiers + 1);
+        this.wordsStart = offsetsStart + 4 * (count + 1);
+        if (image.limit() < wordsStart + image.getInt(offsetsStart + 4 * count)) {
+            throw new IOException("Truncated dictionary");
+        }
+    }
+
+    /**
+     * Opens a dictionary file. A word list is compiled into a {@code .dict} file next to it, unless an up to
+     * date one already exists; a compiled file is mapped as it is.
+     *
+     * @param file a word list or a compiled dictionary
+     * @return the dictionary
+     * @throws IOException if the file cannot be read or compiled, or holds no words
+     */
+    public static WordDictionary open(Path file) throws IOException {
+        if (!isCompiled(file)) {
+            Path compiled = file.resolveSibling(file.getFileName() + COMPILED_SUFFIX);
+            if (!Files.exists(compiled) || Files.getLastModifiedTime(compiled).compareTo(Files.getLastModifiedTime(file)) < 0) {
+                compile(file, compiled, DEFAULT_TIERS);
+            }
+            file = compiled;
+        }
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            return new WordDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())); // Stays mapped after closing
+        }
+    }
+
+    /**
+     * Builds a dictionary in memory from a list of words.
+     *
+     * @param words the words
+     * @param tiers the number of difficulty tiers
+     * @return the dictionary
+     */
+    public static WordDictionary of(Collection<String> words, int tiers) {
+        try {
+            return new WordDictionary(pack(words, tiers));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compiles a word list into a dictionary file. The file is written aside and renamed into place, so
+     * servers starting at the same time never map a partial image.
+     *
+     * @param wordList the text file, one word per line
+     * @param target   the compiled file
+     * @param tiers    the number of difficulty tiers
+     * @throws IOException if the list cannot be read, holds no words, or the file cannot be written
+     */
+    public static void compile(Path wordList, Path target, int tiers) throws IOException {
+        ByteBuffer image = pack(Files.readAllLines(wordList, StandardCharsets.UTF_8), tiers);
+        Path tmp = target.resolveSibling(target.getFileName() + "." + ProcessHandle.current().pid() + ".tmp"); // One per server
+        try {
+            try (FileChannel out = FileChannel.open(tmp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+                while (image.hasRemaining()) {
+                    out.write(image);
+                }
+                out.force(true);
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Picks a random word of a tier.
+     *
+     * @param tier   the tier, 0 being the easiest
+     * @param random the source of randomness
+     * @return the index of the word
+     */
+    public int randomWord(int tier, Random random) {
+        int start = tierStarts[tier];
+        return start + random.nextInt(tierStarts[tier + 1] - start);
+    }
+
+    /**
+     * Picks the words of a game: one random word per round, from the easiest tier for the first round to the
+     * hardest for the last one.
+     *
+     * @param rounds the number of rounds
+     * @param random the source of randomness
+     * @return the words, one per round
+     */
+    public List<String> pickWords(int rounds, Random random) {
+        List<String> words = new ArrayList<>(rounds);
+        for (int index : pickIndexes(rounds, random)) {
+            words.add(word(index));
+        }
+        return words;
+    }
+
+    /**
+     * Picks the words of a game like {@link #pickWords}, and returns their indexes, so their tiers can be looked up.
+     *
+     * @param rounds the number of rounds
+     * @param random the source of randomness
+     * @return the indexes of the words, one per round
+     */
+    public int[] pickIndexes(int rounds, Random random) {
+        int[] indexes = new int[rounds];
+        for (int round = 0; round < rounds; round++) {
+            indexes[round] = randomWord((int) ((long) round * getTiers() / rounds), random);
+        }
+        return indexes;
+    }
+
+    /**
+     * Decodes a word.
+     *
+     * @param index the index of the word
+     * @return the word
+     */
+    public String word(int index) {
+        int start = image.getInt(offsetsStart + 4 * index);
+        int length = image.getInt(offsetsStart + 4 * (index + 1)) - start;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = image.get(wordsStart + start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the tier of a word.
+     *
+     * @param index the index of the word
+     * @return the tier, 0 being the easiest
+     */
+    public int tierOf(int index) {
+        int position = Arrays.binarySearch(tierStarts, index);
+        return position >= 0 ? position : -position - 2;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getTiers() {
+        return tierStarts.length - 1;
+    }
+
+    /**
+     * Returns whether a file starts with the magic of a compiled dictionary.
+     */
+    private static boolean isCompiled(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // Read until the magic is complete or the file ends
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Packs a word list into an image: keeps every distinct word once, whatever its case, sorts the words
+     * by difficulty, and splits them into tiers.
+     */
+    private static ByteBuffer pack(Collection<String> lines, int tiers) throws IOException {
+        Map<String, byte[]> unique = new LinkedHashMap<>(); // Words by lower case form
+        for (String line : lines) {
+            String word = line.trim();
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            if (!word.isEmpty() && bytes.length <= MAX_WORD_SIZE && word.chars().noneMatch(Character::isWhitespace)) {
+                unique.putIfAbsent(word.toLowerCase(Locale.ROOT), bytes);
+            }
+        }
+        if (unique.isEmpty()) {
+            throw new IOException("No usable words in the list");
+        }
+        String[] keys = unique.keySet().toArray(new String[0]);
+        Map<Character, Integer> letters = new HashMap<>(); // Occurrences of every letter
+        long total = 0;
+        for (String word : keys) {
+            for (int i = 0; i < word.length(); i++) {
+                letters.merge(word.charAt(i), 1, Integer::sum);
+            }
+            total += word.length();
+        }
+        Map<Character, Double> bits = new HashMap<>(letters.size() * 2); // Information carried by every letter
+        for (Map.Entry<Character, Integer> letter : letters.entrySet()) {
+            bits.put(letter.getKey(), -Math.log((double) letter.getValue() / total) / Math.log(2));
+        }
+        int count = keys.length;
+        long[] order = new long[count]; // Difficulty in the high bits, index in the low ones
+        for (int w = 0; w < count; w++) {
+            double difficulty = 0;
+            for (int i = 0; i < keys[w].length(); i++) {
+                difficulty += bits.get(keys[w].charAt(i));
+            }
+            order[w] = (long) (difficulty * 1024) << 32 | w; // Sorts by difficulty, then by position in the list
+        }
+        Arrays.sort(order);
+
+        tiers = Math.max(1, Math.min(tiers, count)); // Every tier holds at least one word
+        int dataSize = 0;
+        for (byte[] bytes : unique.values()) {
+            dataSize += bytes.length;
+        }
+        ByteBuffer image = ByteBuffer.allocate(HEADER_SIZE + 4 * (tiers + 1) + 4 * (count + 1) + dataSize);
+        image.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(tiers);
+        for (int t = 0; t <= tiers; t++) {
+            image.putInt((int) ((long) t * count / tiers)); // Tiers of equal size
+        }
+        int offset = 0;
+        for (long entry : order) {
+            image.putInt(offset);
+            offset += unique.get(keys[(int) entry]).length;
+        }
+        image.putInt(offset);
+        for (long entry : order) {
+            image.put(unique.get(keys[(int) entry]));
+        }
+        image.flip();
+        return image;
+    }
+}
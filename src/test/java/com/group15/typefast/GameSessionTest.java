@@ -0,0 +1,238 @@
+package com.group15.typefast;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a {@link GameSession} on the test thread and checks the messages it sends.
+ */
+public class GameSessionTest extends TestCase {
+
+    private static final List<String> WORDS = List.of("cat", "animal", "umbrella");
+
+    private final List<User> receivers = new ArrayList<>(); // Receiver of every sent message, in order
+    private final List<Message> sent = new ArrayList<>(); // Every sent message, in order
+    private final List<GameSession> finished = new ArrayList<>(); // Sessions reported to the listener
+    private final BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>(); // Tasks run by the test thread
+
+    private User alice;
+    private User bob;
+    private Team team;
+    private NonBlockingTimer timer;
+
+    @Override
+    protected void setUp() {
+        alice = new User("alice", null);
+        bob = new User("bob", null);
+        team = new Team(7, List.of(alice, bob));
+    }
+
+    @Override
+    protected void tearDown() {
+        if (timer != null) {
+            timer.stop();
+        }
+    }
+
+    public void testGameStartsOnceEveryMemberIsReady() {
+        GameSession session = newSession(new RoundState(0, WORDS), Runnable::run, null);
+
+        session.ready(alice);
+        assertEquals(List.of(MessageType.READY_WAITING), typesOf(alice));
+        assertTrue(typesOf(bob).isEmpty());
+
+        session.ready(alice); // Ignored, already waiting
+        session.ready(bob);
+        List<MessageType> started = List.of(MessageType.READY_WAITING, MessageType.GAME_STARTED, MessageType.NEW_WORD);
+        assertEquals(started, typesOf(alice));
+        assertEquals(started, typesOf(bob));
+        assertEquals("cat", last(bob).getText());
+        assertEquals(0, last(bob).getValue());
+        assertTrue(alice.isInGame());
+    }
+
+    public void testAnswerRepliesWithCorrelationOfRequest() {
+        GameSession session = start(new RoundState(0, WORDS), Runnable::run, null);
+
+        session.answer(alice, Message.answer(0, "dog").withCorrelation(11), System.nanoTime());
+        assertEquals(MessageType.INCORRECT, last(alice).getType());
+        assertEquals(11, last(alice).getCorrelation());
+
+        session.answer(alice, Message.answer(0, "CAT").withCorrelation(12), System.nanoTime());
+        assertEquals(MessageType.CORRECT, last(alice).getType());
+        assertEquals(12, last(alice).getCorrelation());
+        assertEquals(1, alice.getCorrectWordCount());
+
+        int count = sent.size();
+        session.answer(alice, Message.answer(0, "cat"), System.nanoTime()); // Already answered
+        session.answer(bob, Message.answer(1, "animal"), System.nanoTime()); // Not the current round
+        assertEquals(count, sent.size());
+    }
+
+    public void testRoundCompletesOnceEveryPlayerAnswered() {
+        GameSession session = start(new RoundState(0, WORDS), Runnable::run, null);
+
+        session.answer(alice, "cat", System.nanoTime());
+        assertEquals(MessageType.CORRECT, last(alice).getType());
+        assertEquals(MessageType.NEW_WORD, last(bob).getType());
+        assertEquals(0, session.getRounds().getRound());
+
+        session.answer(bob, "cat", System.nanoTime());
+        assertEquals(1, session.getRounds().getRound());
+        List<MessageType> types = typesOf(bob);
+        assertEquals(List.of(MessageType.CORRECT, MessageType.ROUND_COMPLETE, MessageType.NEW_WORD),
+                types.subList(types.size() - 3, types.size()));
+        assertEquals("animal", last(alice).getText());
+        assertEquals(1, last(alice).getValue()); // The team scored the round
+    }
+
+    public void testSpectatorNoLongerHoldsUpTheRound() {
+        GameSession session = start(new RoundState(0, WORDS), Runnable::run, null);
+
+        session.answer(alice, "cat", System.nanoTime());
+        session.spectate(bob);
+        assertTrue(bob.isSpectator());
+        assertEquals(1, session.getRounds().getRound());
+
+        session.answer(alice, "animal", System.nanoTime()); // The only active player completes the round alone
+        assertEquals(2, session.getRounds().getRound());
+    }
+
+    public void testGameOverAfterTheLastWord() {
+        GameSession session = start(new RoundState(0, WORDS), Runnable::run, null);
+
+        for (String word : WORDS) {
+            session.answer(alice, word, System.nanoTime());
+            session.answer(bob, word, System.nanoTime());
+        }
+
+        assertTrue(session.getRounds().isOver());
+        assertEquals(List.of(session), finished);
+        assertEquals(WORDS.size(), session.getSplits().getCompleted());
+        for (User user : List.of(alice, bob)) {
+            Message result = last(user);
+            assertEquals(MessageType.GAME_OVER, result.getType());
+            assertEquals(WORDS.size(), result.getValue());
+            assertFalse(user.isInGame());
+            assertNull(user.getTeam());
+        }
+    }
+
+    public void testNextGameStartsFromZero() {
+        GameSession first = start(new RoundState(0, WORDS), Runnable::run, null);
+        for (String word : WORDS) {
+            first.answer(alice, word, System.nanoTime());
+            first.answer(bob, word, System.nanoTime());
+        }
+        assertEquals(0, alice.getScore());
+
+        bob.setScore(5); // A history the teammate does not share
+        team = new Team(8, List.of(alice, bob));
+        GameSession second = start(new RoundState(1, WORDS), Runnable::run, null);
+        assertEquals(0, last(alice).getValue());
+        assertEquals(0, last(bob).getValue());
+
+        second.answer(alice, "cat", System.nanoTime());
+        second.answer(bob, "cat", System.nanoTime());
+        assertEquals(1, last(alice).getValue());
+        assertEquals(1, last(bob).getValue());
+    }
+
+    public void testTimeUpEndsTheRoundWithoutScoring() throws InterruptedException {
+        timer = new NonBlockingTimer("test-timer", 1);
+        long limit = TimeUnit.MILLISECONDS.toNanos(200);
+        GameSession session = start(new RoundState(0, WORDS, new long[] {limit, 0, 0}), tasks::add, timer);
+
+        session.answer(alice, "cat", System.nanoTime());
+        runTasks();
+        Runnable timeUp = tasks.poll(5, TimeUnit.SECONDS); // Handed over by the timer thread
+        assertNotNull("Round did not time out", timeUp);
+        timeUp.run();
+
+        assertEquals(MessageType.TIME_UP, typesOf(bob).get(typesOf(bob).size() - 3));
+        assertFalse(typesOf(alice).contains(MessageType.TIME_UP)); // Alice typed the word in time
+        assertTrue(session.getSplits().getCorrectNanos(0, 1) < 0);
+        assertEquals(1, session.getRounds().getRound());
+        assertEquals(MessageType.NEW_WORD, last(alice).getType());
+        assertEquals(0, last(alice).getValue()); // The timed-out round did not score
+
+        int count = sent.size();
+        session.answer(bob, Message.answer(0, "cat"), System.nanoTime()); // Too late for its round
+        runTasks();
+        assertEquals(count, sent.size());
+
+        for (String word : WORDS.subList(1, WORDS.size())) {
+            session.answer(alice, word, System.nanoTime());
+            session.answer(bob, word, System.nanoTime());
+            runTasks();
+        }
+        assertEquals(MessageType.GAME_OVER, last(bob).getType());
+        assertEquals(WORDS.size() - 1, last(bob).getValue());
+        assertEquals(0, timer.getPending());
+    }
+
+    /**
+     * Creates a session that records every message it sends.
+     */
+    private GameSession newSession(RoundState rounds, Executor executor, NonBlockingTimer timer) {
+        GameSession.Outbox outbox = (user, message) -> {
+            receivers.add(user);
+            sent.add(message);
+        };
+        Metrics metrics = new Metrics();
+        GameSession session = new GameSession(team, rounds, outbox, executor, metrics,
+                new MatchStream(team.getTeamID(), executor, metrics, () -> {}), finished::add, timer);
+        team.setSession(session);
+        for (User user : team.getTeamUsers()) {
+            user.setTeam(team);
+        }
+        return session;
+    }
+
+    /**
+     * Creates a session and gets every member ready.
+     */
+    private GameSession start(RoundState rounds, Executor executor, NonBlockingTimer timer) {
+        GameSession session = newSession(rounds, executor, timer);
+        for (User user : team.getTeamUsers()) {
+            session.ready(user);
+        }
+        runTasks();
+        return session;
+    }
+
+    /**
+     * Runs the tasks queued for the test thread, including the ones they queue.
+     */
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private List<MessageType> typesOf(User user) {
+        List<MessageType> types = new ArrayList<>();
+        for (int i = 0; i < sent.size(); i++) {
+            if (receivers.get(i) == user) {
+                types.add(sent.get(i).getType());
+            }
+        }
+        return types;
+    }
+
+    private Message last(User user) {
+        for (int i = sent.size() - 1; i >= 0; i--) {
+            if (receivers.get(i) == user) {
+                return sent.get(i);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,146 @@
+package com.group15.typefast;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Checks that the match history reads back every committed match after a restart, across segment files.
+ */
+public class MatchHistoryTest extends TestCase {
+
+    private static final long SEGMENT_SIZE = 512; // Room for about two blocks of one match
+
+    private final List<MatchHistory> histories = new ArrayList<>(); // Histories to close after the test
+    private Path dir;
+
+    @Override
+    protected void setUp() throws IOException {
+        dir = Files.createTempDirectory("typefast-history");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        for (MatchHistory history : histories) {
+            history.close();
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    public void testReloadAcrossSegments() throws Exception {
+        MatchHistory history = open();
+        for (int i = 0; i < 6; i++) {
+            commit(history, match(i, i % 2 == 0 ? "alice" : "bob", "carol"));
+        }
+        history.close();
+        assertTrue(segmentCount() > 1);
+
+        MatchHistory reloaded = open();
+        assertEquals(6, reloaded.size());
+        assertEquals(6, reloaded.countMatches("carol"));
+        assertEquals(3, reloaded.countMatches("alice"));
+        assertEquals(0, reloaded.countMatches("dave"));
+        for (int i = 0; i < 6; i++) {
+            assertMatch(i, "carol", reloaded.read(i));
+        }
+
+        List<MatchRecord> recent = reloaded.recentMatches("alice", 2);
+        assertEquals(2, recent.size());
+        assertEquals(4, recent.get(0).getId()); // The most recent first
+        assertEquals(2, recent.get(1).getId());
+        assertEquals(12, reloaded.averageRoundNanos("cat")); // Rounds of 10 + i nanoseconds, rounded down
+        assertEquals(-1, reloaded.averageRoundNanos("dog"));
+    }
+
+    public void testMatchesAfterReloadContinueTheLastSegment() throws Exception {
+        MatchHistory history = open();
+        commit(history, match(0, "alice", "bob"));
+        history.close();
+
+        MatchHistory reloaded = open();
+        for (int i = 1; i < 4; i++) {
+            commit(reloaded, match(i, "alice", "bob"));
+        }
+        assertEquals(3, reloaded.read(3).getTeamID());
+        reloaded.close();
+
+        MatchHistory again = open();
+        assertEquals(4, again.size());
+        assertEquals(4, again.countMatches("bob"));
+        for (int i = 0; i < 4; i++) {
+            assertMatch(i, "bob", again.read(i));
+        }
+        try {
+            again.read(4);
+            fail("Uncommitted match read");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    private MatchHistory open() throws IOException {
+        MatchHistory history = new MatchHistory(dir, SEGMENT_SIZE);
+        histories.add(history);
+        history.load();
+        return history;
+    }
+
+    /**
+     * Appends a match and waits until the writer committed it, so every match gets a block of its own.
+     */
+    private static void commit(MatchHistory history, MatchRecord match) throws InterruptedException {
+        long size = history.size();
+        history.append(match);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (history.size() == size) {
+            assertTrue("Match not committed", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Creates the i-th match of a test: two rounds, the second player misses the second word.
+     */
+    private static MatchRecord match(int i, String first, String second) {
+        return new MatchRecord(-1, i, 1000 + i, 1_700_000_000_000L + i, new String[] {first, second},
+                new String[] {"cat", "umbrella"}, new long[] {10 + i, 20 + i}, new long[] {5, 6, 7, -1},
+                new int[] {1, 1, 2, 3});
+    }
+
+    private static void assertMatch(int i, String second, MatchRecord match) {
+        assertEquals(i, match.getId());
+        assertEquals(i, match.getTeamID());
+        assertEquals(1000 + i, match.getSeed());
+        assertEquals(1_700_000_000_000L + i, match.getEndedAt());
+        assertEquals(2, match.getPlayers());
+        assertEquals(2, match.getRounds());
+        assertEquals(second, match.getUsername(1));
+        assertEquals(1, match.indexOf(second));
+        assertEquals("umbrella", match.getWord(1));
+        assertEquals(20 + i, match.getRoundNanos(1));
+        assertEquals(7, match.getCorrectNanos(1, 0));
+        assertEquals(-1, match.getCorrectNanos(1, 1));
+        assertEquals(3, match.getTrials(1, 1));
+        assertEquals(1, match.getWords(1));
+    }
+
+    private int segmentCount() throws IOException {
+        int count = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "matches-*.seg")) {
+            for (Path ignored : files) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
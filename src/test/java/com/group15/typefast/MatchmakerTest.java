@@ -0,0 +1,120 @@
+package com.group15.typefast;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that the lobby puts every player in exactly one team, within a bucket and across buckets.
+ */
+public class MatchmakerTest extends TestCase {
+
+    private final BlockingQueue<Team> formed = new LinkedBlockingQueue<>(); // Teams reported to the listener
+    private NonBlockingTimer timer;
+
+    @Override
+    protected void setUp() {
+        timer = new NonBlockingTimer("test-timer", 1);
+    }
+
+    @Override
+    protected void tearDown() {
+        timer.stop();
+    }
+
+    public void testConcurrentJoinsFormEveryPlayerIntoOneTeam() throws InterruptedException {
+        Matchmaker matchmaker = new Matchmaker(3, 60_000, 60_000, formed::add, Runnable::run, timer, new Metrics());
+        int threads = 4;
+        int perThread = 300;
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < threads * perThread; i++) {
+            users.add(rated("user" + i, 50 + 100 * (i % 4))); // Four buckets of 300 players
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> joiners = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            List<User> mine = users.subList(t * perThread, (t + 1) * perThread);
+            Thread joiner = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (User user : mine) {
+                    matchmaker.join(user);
+                    matchmaker.join(user); // Ignored, already waiting or teamed
+                }
+            });
+            joiner.start();
+            joiners.add(joiner);
+        }
+        start.countDown();
+        for (Thread joiner : joiners) {
+            joiner.join();
+        }
+
+        Set<User> teamed = new HashSet<>();
+        for (Team team : formed) {
+            assertEquals(3, team.getTeamUsers().size());
+            int bucket = Matchmaker.bucketOf(team.getTeamUsers().get(0).getRating());
+            for (User user : team.getTeamUsers()) {
+                assertTrue(user.getUsername() + " is in two teams", teamed.add(user));
+                assertSame(team, user.getTeam());
+                assertEquals(bucket, Matchmaker.bucketOf(user.getRating()));
+            }
+        }
+        assertEquals(users.size(), teamed.size());
+        assertEquals(0, matchmaker.getWaiting());
+    }
+
+    public void testWaitingPlayersAcceptNeighbouringBuckets() throws InterruptedException {
+        Matchmaker matchmaker = new Matchmaker(2, 10, 1_000, formed::add, Runnable::run, timer, new Metrics());
+        User fast = rated("fast", 100);
+        User slow = rated("slow", 130); // One bucket slower
+        assertTrue(Matchmaker.bucketOf(fast.getRating()) != Matchmaker.bucketOf(slow.getRating()));
+
+        matchmaker.join(fast);
+        matchmaker.join(slow);
+        assertEquals(2, matchmaker.getWaiting());
+
+        Team team = formed.poll(5, TimeUnit.SECONDS);
+        assertNotNull("No team across buckets", team);
+        assertEquals(Set.of(fast, slow), new HashSet<>(team.getTeamUsers()));
+        assertEquals(0, matchmaker.getWaiting());
+    }
+
+    public void testLeftPlayerIsNeverTeamed() {
+        Matchmaker matchmaker = new Matchmaker(2, 60_000, 60_000, formed::add, Runnable::run, timer, new Metrics());
+        User gone = rated("gone", 100);
+        User first = rated("first", 100);
+        User second = rated("second", 100);
+
+        matchmaker.join(gone);
+        assertTrue(matchmaker.leave(gone));
+        assertFalse(matchmaker.leave(gone));
+        matchmaker.join(first);
+        assertTrue(formed.isEmpty());
+        matchmaker.join(second);
+
+        assertEquals(1, formed.size());
+        assertEquals(Set.of(first, second), new HashSet<>(formed.peek().getTeamUsers()));
+        assertNull(gone.getTeam());
+        assertFalse(matchmaker.leave(first)); // Already in a team
+    }
+
+    /**
+     * Creates a player with the given typing speed in milliseconds per character.
+     */
+    private static User rated(String username, long msPerChar) {
+        User user = new User(username, null);
+        user.recordAnswer(msPerChar * 10, 10);
+        return user;
+    }
+}
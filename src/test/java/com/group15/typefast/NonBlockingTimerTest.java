@@ -0,0 +1,91 @@
+package com.group15.typefast;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks that the timer wheel runs tasks on time, in every wheel, and never runs cancelled ones.
+ */
+public class NonBlockingTimerTest extends TestCase {
+
+    private NonBlockingTimer timer;
+
+    @Override
+    protected void setUp() {
+        timer = new NonBlockingTimer("test-timer", 1);
+    }
+
+    @Override
+    protected void tearDown() {
+        timer.stop();
+    }
+
+    public void testTaskRunsNoEarlierThanItsDelay() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        long[] runNanos = new long[1];
+        long start = System.nanoTime();
+        NonBlockingTimer.Timeout timeout = timer.schedule(() -> {
+            runNanos[0] = System.nanoTime();
+            ran.countDown();
+        }, 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(runNanos[0] - start >= TimeUnit.MILLISECONDS.toNanos(30));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel()); // Too late
+        assertEquals(0, timer.getPending());
+    }
+
+    public void testTasksCascadeDownTheWheelsInDeadlineOrder() throws InterruptedException {
+        long[] delays = {250, 5, 70, 130, 0, 64}; // Ticks in the first and second wheel
+        List<Long> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch ran = new CountDownLatch(delays.length);
+        for (long delay : delays) {
+            timer.schedule(() -> {
+                order.add(delay);
+                ran.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(delays.length, timer.getPending());
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(0L, 5L, 64L, 70L, 130L, 250L), order);
+        assertEquals(0, timer.getPending());
+    }
+
+    public void testCancelledTaskNeverRuns() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        NonBlockingTimer.Timeout near = timer.schedule(runs::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+        NonBlockingTimer.Timeout far = timer.schedule(runs::incrementAndGet, 100, TimeUnit.MILLISECONDS);
+        CountDownLatch ran = new CountDownLatch(1);
+        timer.schedule(ran::countDown, 150, TimeUnit.MILLISECONDS);
+
+        assertTrue(near.cancel());
+        assertFalse(near.cancel()); // Only once
+        Thread.sleep(50); // Let the second one reach its wheel first
+        assertTrue(far.cancel());
+        assertEquals(1, timer.getPending());
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+        assertTrue(near.isCancelled());
+        assertTrue(far.isCancelled());
+        assertFalse(far.isExpired());
+    }
+
+    public void testFailingTaskDoesNotStopTheTimer() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        timer.schedule(() -> {
+            throw new IllegalStateException("Expected by the test");
+        }, 1, TimeUnit.MILLISECONDS);
+        timer.schedule(ran::countDown, 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+}
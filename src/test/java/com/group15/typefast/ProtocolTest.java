@@ -0,0 +1,114 @@
+package com.group15.typefast;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Checks that every message survives the codec and the framing unchanged.
+ */
+public class ProtocolTest extends TestCase {
+
+    private static final List<Message> MESSAGES = List.of(
+            Message.register("ålice", "pässword"),
+            Message.login("bob", "secret"),
+            Message.makeTeam(),
+            Message.startGame(),
+            Message.answer(3, "umbrella"),
+            Message.answer("cat"),
+            Message.spectate(),
+            Message.watch(42),
+            Message.leaderboard(10),
+            Message.history(5),
+            Message.resume("token", 17),
+            Message.registered(true),
+            Message.loginResult(false),
+            Message.teamFormed(9),
+            Message.newWord(2, "difficult"),
+            Message.correct(1234),
+            Message.incorrect(),
+            Message.roundComplete(),
+            Message.gameOver(10, 98765L),
+            Message.playerAnswered("carol", 456),
+            Message.rank(3, 1000),
+            Message.match(10, 54321L, "alice,bob"),
+            Message.session("abc-123"),
+            Message.timeUp());
+
+    public void testEncodeDecodeRoundTrip() throws IOException {
+        for (Message message : MESSAGES) {
+            ByteBuffer frame = Protocol.encode(message);
+            assertEquals(frame.remaining() - FrameIO.HEADER_SIZE, frame.getInt());
+            assertSameMessage(message, Protocol.decode(frame));
+            assertFalse(frame.hasRemaining());
+        }
+    }
+
+    public void testCorrelationIdSurvivesRoundTrip() throws IOException {
+        Message request = Message.answer(1, "animal").withCorrelation(0x7FFF_0001);
+        ByteBuffer frame = Protocol.encode(request);
+        frame.getInt();
+        Message decoded = Protocol.decode(frame);
+        assertSameMessage(request, decoded);
+
+        Message reply = Message.correct(250).replyTo(decoded);
+        assertEquals(request.getCorrelation(), reply.getCorrelation());
+        assertEquals(0, Message.incorrect().replyTo(Message.answer("x")).getCorrelation());
+    }
+
+    public void testFrameIORoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FrameIO.writeMessage(out, MESSAGES.get(0));
+        FrameIO.writeMessages(out, MESSAGES.subList(1, MESSAGES.size()).toArray(new Message[0]));
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+        for (Message message : MESSAGES) {
+            assertSameMessage(message, FrameIO.readMessage(in));
+        }
+        assertNull(FrameIO.readMessage(in)); // Clean end of stream between frames
+    }
+
+    public void testInvalidFramesAreRejected() {
+        assertRejected(new byte[] {0, 0, 0, 0}); // Empty frame
+        assertRejected(ByteBuffer.allocate(4).putInt(FrameIO.MAX_FRAME_SIZE + 1).array()); // Oversized frame
+        try {
+            Protocol.decode(ByteBuffer.wrap(new byte[] {0x7F})); // Unknown opcode
+            fail("Unknown opcode accepted");
+        } catch (IOException expected) {
+            // Expected
+        }
+        ByteBuffer frame = Protocol.encode(Message.newWord(1, "cat"));
+        frame.getInt();
+        frame.limit(frame.limit() - 1);
+        try {
+            Protocol.decode(frame);
+            fail("Truncated frame accepted");
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+
+    private static void assertRejected(byte[] bytes) {
+        try {
+            FrameIO.readFrame(new DataInputStream(new ByteArrayInputStream(bytes)));
+            fail("Invalid frame accepted");
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+
+    private static void assertSameMessage(Message expected, Message actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getValue(), actual.getValue());
+        assertEquals(expected.getTime(), actual.getTime());
+        assertEquals(expected.getText(), actual.getText());
+        assertEquals(expected.getSecret(), actual.getSecret());
+        assertEquals(expected.getCorrelation(), actual.getCorrelation());
+    }
+}
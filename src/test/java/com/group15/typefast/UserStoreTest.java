@@ -0,0 +1,113 @@
+package com.group15.typefast;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Checks that registered accounts survive a restart, through the snapshot as well as through the log.
+ */
+public class UserStoreTest extends TestCase {
+
+    private static final int ITERATIONS = 1; // Keeps hashing cheap, the format is the same
+
+    private final List<UserStore> stores = new ArrayList<>(); // Stores to close after the test
+    private Path dir;
+
+    @Override
+    protected void setUp() throws IOException {
+        dir = Files.createTempDirectory("typefast-users");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        for (UserStore store : stores) {
+            store.close();
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    public void testAccountsSurviveCloseAndReload() throws Exception {
+        UserStore store = open(2);
+        UserRegistry registry = store.load();
+        for (int i = 0; i < 5; i++) {
+            assertTrue(registry.register(new User("user" + i, "pw" + i)).get());
+        }
+        assertFalse(registry.register(new User("USER3", "other")).get()); // Taken, ignoring case
+        store.close();
+
+        UserRegistry reloaded = open(2).load();
+        assertEquals(5, reloaded.size());
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(reloaded.verify("user" + i, "pw" + i));
+            assertNull(reloaded.verify("user" + i, "wrong"));
+        }
+        assertFalse(new String(Files.readAllBytes(dir.resolve("users.snapshot")), "UTF-8").contains("pw1"));
+    }
+
+    public void testReplayDropsTornRecordAtEndOfLog() throws Exception {
+        UserStore crashed = open(1000); // Keeps every account in the log
+        UserRegistry registry = crashed.load();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(registry.register(new User("user" + i, "pw" + i)).get());
+        }
+        Path log = dir.resolve("users.log");
+        long committed = Files.size(log);
+        assertTrue(registry.register(new User("torn", "pw")).get());
+        long written = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, WRITE)) {
+            channel.truncate(written - 3); // As if the process died during the last write
+        }
+
+        UserRegistry restored = open(1000).load();
+        assertEquals(3, restored.size());
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(restored.verify("user" + i, "pw" + i));
+        }
+        assertNull(restored.find("torn"));
+        assertEquals(committed, Files.size(log)); // The torn record was cut off
+    }
+
+    public void testRegistrationsAfterReplayFollowTheValidRecords() throws Exception {
+        UserStore crashed = open(1000);
+        UserRegistry registry = crashed.load();
+        assertTrue(registry.register(new User("first", "pw")).get());
+        assertTrue(registry.register(new User("torn", "pw")).get());
+        Path log = dir.resolve("users.log");
+        try (FileChannel channel = FileChannel.open(log, WRITE)) {
+            channel.truncate(Files.size(log) - 1);
+        }
+
+        UserStore store = open(1000);
+        UserRegistry restored = store.load();
+        assertTrue(restored.register(new User("second", "pw")).get());
+        assertTrue(restored.register(new User("torn", "new")).get()); // The name is free again
+        stores.remove(crashed);
+        stores.remove(store);
+
+        UserRegistry reloaded = open(1000).load(); // Replays the log of the second store
+        assertEquals(3, reloaded.size());
+        assertNotNull(reloaded.verify("first", "pw"));
+        assertNotNull(reloaded.verify("second", "pw"));
+        assertNotNull(reloaded.verify("torn", "new"));
+        crashed.close();
+        store.close();
+    }
+
+    private UserStore open(int snapshotEvery) throws IOException {
+        UserStore store = new UserStore(dir, snapshotEvery, ITERATIONS);
+        stores.add(store);
+        return store;
+    }
+}
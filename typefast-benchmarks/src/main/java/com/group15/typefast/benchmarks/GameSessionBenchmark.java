@@ -0,0 +1,66 @@
+package com.group15.typefast.benchmarks;
+
+import com.group15.typefast.GameSession;
+import com.group15.typefast.Metrics;
+import com.group15.typefast.RoundState;
+import com.group15.typefast.Team;
+import com.group15.typefast.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures answer checking in a running game, driven on the calling thread without sockets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameSessionBenchmark {
+
+    private static final String WORD = "apprenticeship";
+    private static final List<String> WORDS = Collections.nCopies(1024, WORD); // Rounds of one game
+
+    private Blackhole blackhole;
+    private Metrics metrics;
+    private User player;
+    private Team team;
+    private GameSession session;
+
+    @Setup(Level.Iteration)
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        this.metrics = new Metrics();
+        newGame();
+    }
+
+    @Benchmark
+    public void correctAnswer() {
+        session.answer(player, "APPRENTICESHIP", System.nanoTime()); // Completes the round
+        if (team.getRoundState().isOver()) {
+            newGame(); // Once every 1024 answers
+        }
+    }
+
+    @Benchmark
+    public void incorrectAnswer() {
+        session.answer(player, "apprenticeshit", System.nanoTime());
+    }
+
+    /**
+     * Starts a game of a single player, who gets ready right away.
+     */
+    private void newGame() {
+        player = new User("player", "secret");
+        team = new Team(0, List.of(player));
+        session = new GameSession(team, new RoundState(0, WORDS), (user, message) -> blackhole.consume(message),
+                Runnable::run, metrics);
+        team.setSession(session);
+        session.ready(player);
+    }
+}
@@ -0,0 +1,54 @@
+package com.group15.typefast.benchmarks;
+
+import com.group15.typefast.Matchmaker;
+import com.group15.typefast.Metrics;
+import com.group15.typefast.NonBlockingTimer;
+import com.group15.typefast.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures team formation: one operation lets a full team of similar players join the lobby.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchmakerBenchmark {
+
+    private static final int TEAM_SIZE = 3;
+
+    private NonBlockingTimer timer;
+    private Matchmaker matchmaker;
+    private User[] players;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        timer = new NonBlockingTimer("benchmark-timer", 10);
+        matchmaker = new Matchmaker(TEAM_SIZE, TimeUnit.HOURS.toMillis(1), TimeUnit.HOURS.toMillis(1),
+                blackhole::consume, Runnable::run, timer, new Metrics()); // No relaxation during the run
+        players = new User[TEAM_SIZE];
+        for (int i = 0; i < TEAM_SIZE; i++) {
+            players[i] = new User("player" + i, "secret");
+            players[i].setRating(200);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Benchmark
+    public int formTeam() {
+        for (User player : players) {
+            player.setTeam(null); // Out of the previous team, like after its game
+            matchmaker.join(player);
+        }
+        return matchmaker.getTeamsFormed();
+    }
+}
@@ -0,0 +1,50 @@
+package com.group15.typefast.benchmarks;
+
+import com.group15.typefast.FrameIO;
+import com.group15.typefast.Message;
+import com.group15.typefast.Protocol;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the encoding of the responses sent during a game and the decoding of an answer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolBenchmark {
+
+    private Message newWord;
+    private Message correct;
+    private ByteBuffer answerFrame;
+
+    @Setup
+    public void setUp() {
+        newWord = Message.newWord(7, "apprenticeship");
+        correct = Message.correct(1234);
+        answerFrame = Protocol.encode(Message.answer("apprenticeship"));
+    }
+
+    @Benchmark
+    public ByteBuffer encodeNewWord() {
+        return Protocol.encode(newWord);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeCorrect() {
+        return Protocol.encode(correct);
+    }
+
+    @Benchmark
+    public Message decodeAnswer() throws IOException {
+        ByteBuffer payload = answerFrame.duplicate();
+        payload.position(FrameIO.HEADER_SIZE); // Skip the length prefix
+        return Protocol.decode(payload);
+    }
+}
@@ -0,0 +1,40 @@
+package com.group15.typefast.benchmarks;
+
+import com.group15.typefast.Team;
+import com.group15.typefast.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookup of the players still playing in a team.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TeamBenchmark {
+
+    private Team team;
+
+    @Setup
+    public void setUp() {
+        List<User> members = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User user = new User("player" + i, "secret");
+            user.setInGame(true);
+            members.add(user);
+        }
+        members.get(2).setSpectator(true);
+        team = new Team(0, members);
+    }
+
+    @Benchmark
+    public List<User> inGameUsers() {
+        return team.getInGameUsers();
+    }
+}
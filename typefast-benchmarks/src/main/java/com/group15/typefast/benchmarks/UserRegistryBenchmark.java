@@ -0,0 +1,48 @@
+package com.group15.typefast.benchmarks;
+
+import com.group15.typefast.User;
+import com.group15.typefast.UserRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the credential check done on every login against a registry of many accounts. The passwords are
+ * hashed with a single PBKDF2 round, so the lookup is measured rather than the hash cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserRegistryBenchmark {
+
+    @Param({"100000"})
+    private int users; // Number of registered accounts
+
+    private UserRegistry registry;
+    private String[] names; // Usernames in mixed case, as typed by the players
+    private int next;
+
+    @Setup
+    public void setUp() {
+        registry = new UserRegistry(1);
+        names = new String[users];
+        for (int i = 0; i < users; i++) {
+            registry.register(new User("player" + i, "secret" + i));
+            names[i] = "Player" + i;
+        }
+    }
+
+    @Benchmark
+    public User verifyHit() {
+        int i = next++ % users;
+        return registry.verify(names[i], "secret" + i);
+    }
+
+    @Benchmark
+    public User verifyMiss() {
+        return registry.verify("nobody", "secret");
+    }
+}